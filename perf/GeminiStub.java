@@ -0,0 +1,126 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal local stand-in for the Gemini generateContent and cachedContents APIs, used for
+ * startup training runs, benchmarks and checking the context cache lifecycle. Cache
+ * lifecycle calls are printed to stdout. Run with the JDK source launcher:
+ *
+ *   java perf/GeminiStub.java [port] [latencyMs] [workers]
+ *
+ * and point the backend at it with --gemini.api.base-url=http://127.0.0.1:PORT/
+ */
+public class GeminiStub {
+
+    private static final byte[] RESPONSE = """
+            {"candidates":[{"content":{"parts":[{"text":"stub translation"}],"role":"model"}}],\
+            "usageMetadata":{"promptTokenCount":12,"candidatesTokenCount":3,"totalTokenCount":15}}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private static final Pattern TTL = Pattern.compile("\"ttl\"\\s*:\\s*\"(\\d+)s\"");
+    private static final Pattern CACHED_CONTENT = Pattern.compile("\"cachedContent\"\\s*:\\s*\"([^\"]+)\"");
+
+    // name -> {expiry millis, cached tokens}
+    private static final Map<String, long[]> CACHES = new ConcurrentHashMap<>();
+    private static final AtomicLong CACHE_IDS = new AtomicLong();
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 18090;
+        long latencyMs = args.length > 1 ? Long.parseLong(args[1]) : 0L;
+        // With a latency set, workers bounds how many requests the stub holds at once
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), Math.max(512, workers));
+        server.createContext("/", exchange -> {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.contains("cachedContents")) {
+                int status = 200;
+                String response;
+                String method = exchange.getRequestMethod();
+                if (method.equals("POST")) {
+                    String name = "cachedContents/stub-" + CACHE_IDS.incrementAndGet();
+                    long expiry = System.currentTimeMillis() + ttlSeconds(body) * 1000L;
+                    CACHES.put(name, new long[]{expiry, Math.max(1, body.length() / 4)});
+                    response = cacheJson(name, expiry);
+                    System.out.println("created " + name + " (" + body.length() + " bytes)");
+                } else {
+                    String name = path.substring(path.indexOf("cachedContents"));
+                    long[] cache = CACHES.get(name);
+                    if (cache == null) {
+                        status = 404;
+                        response = "{\"error\":{\"code\":404,\"status\":\"NOT_FOUND\"}}";
+                    } else if (method.equals("DELETE")) {
+                        CACHES.remove(name);
+                        response = "{}";
+                        System.out.println("deleted " + name);
+                    } else {
+                        cache[0] = System.currentTimeMillis() + ttlSeconds(body) * 1000L;
+                        response = cacheJson(name, cache[0]);
+                        System.out.println("refreshed " + name);
+                    }
+                }
+                send(exchange, status, response.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            byte[] response = RESPONSE;
+            Matcher cachedContent = CACHED_CONTENT.matcher(body);
+            if (cachedContent.find()) {
+                long[] cache = CACHES.get(cachedContent.group(1));
+                if (cache == null || cache[0] < System.currentTimeMillis()) {
+                    send(exchange, 404, "{\"error\":{\"code\":404,\"status\":\"NOT_FOUND\"}}".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                response = new String(RESPONSE, StandardCharsets.UTF_8)
+                        .replace("\"promptTokenCount\":12", "\"promptTokenCount\":" + (12 + cache[1])
+                                + ",\"cachedContentTokenCount\":" + cache[1])
+                        .getBytes(StandardCharsets.UTF_8);
+            }
+            if (latencyMs > 0) {
+                try {
+                    Thread.sleep(latencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            send(exchange, 200, response);
+        });
+        server.setExecutor(Executors.newFixedThreadPool(workers));
+        server.start();
+        System.out.println("Gemini stub listening on 127.0.0.1:" + port + " (latency " + latencyMs + " ms)");
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static long ttlSeconds(String body) {
+        Matcher matcher = TTL.matcher(body);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 3600L;
+    }
+
+    private static String cacheJson(String name, long expiry) {
+        return "{\"name\":\"" + name + "\",\"expireTime\":\"" + Instant.ofEpochMilli(expiry) + "\"}";
+    }
+}
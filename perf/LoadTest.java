@@ -0,0 +1,91 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for POST /api/generate: {@code concurrency} simulated users each
+ * send a request, wait for the answer and immediately send the next one, for {@code seconds}.
+ * Users are asynchronous requests rather than threads, so the generator itself stays cheap at
+ * thousands of users. Every request carries a distinct text so none is answered from the cache.
+ *
+ *   java perf/LoadTest.java <baseUrl> <concurrency> <seconds>
+ *
+ * Prints one line: concurrency, completed requests per second, p50 and p99 latency of
+ * successful requests in ms, successes and failures (non-200 or transport errors).
+ */
+public class LoadTest {
+
+    // Texts differ between runs too, so a run never hits entries cached by an earlier one
+    private static final String RUN = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://127.0.0.1:18080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        URI uri = URI.create(baseUrl + "/api/generate");
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        LongAdder ok = new LongAdder();
+        LongAdder failed = new LongAdder();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+        long start = System.nanoTime();
+        CompletableFuture<?>[] users = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            users[i] = loop(client, uri, deadline, ok, failed, latencies);
+        }
+        CompletableFuture.allOf(users).join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        System.out.printf("%d %.1f %d %d %d %d%n", concurrency, (ok.sum() + failed.sum()) / elapsed,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), ok.sum(), failed.sum());
+    }
+
+    private static CompletableFuture<Void> loop(HttpClient client, URI uri, long deadline,
+                                                LongAdder ok, LongAdder failed, ConcurrentLinkedQueue<Long> latencies) {
+        if (System.nanoTime() - deadline >= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String body = "{\"text\":\"Load test " + RUN + " sentence number " + SEQUENCE.incrementAndGet()
+                + "\",\"prompt\":\"Translate to French\"}";
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long sent = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error == null && response.statusCode() == 200) {
+                        ok.increment();
+                        latencies.add((System.nanoTime() - sent) / 1_000_000L);
+                    } else {
+                        failed.increment();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, uri, deadline, ok, failed, latencies));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
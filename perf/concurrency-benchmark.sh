@@ -0,0 +1,109 @@
+#!/usr/bin/env bash
+#
+# Concurrency benchmark: platform-thread mode vs virtual-threads mode under many concurrent
+# users whose requests spend their time blocked on the Gemini call.
+#
+# One jar is built with the virtual-threads Maven profile (Java 21) and run twice: with the
+# default profile (Tomcat pool of server.tomcat.threads.max platform threads) and with
+# --spring.profiles.active=virtual-threads. The local Gemini stub answers after LATENCY_MS.
+# Rate limits and load shedding are lifted and the scheduler cap is raised in both modes so
+# the request threads are the only difference. For each concurrency level perf/LoadTest.java
+# runs a closed loop for DURATION seconds; halfway through, the RSS and OS thread count of
+# the application are sampled. Memory per concurrent request is the RSS growth over the idle
+# application divided by the number of concurrent users.
+#
+# Results from a single-vCPU run with the defaults are in the README.
+#
+# Usage: perf/concurrency-benchmark.sh            (Linux; needs curl and a JDK 21 on PATH)
+#   LEVELS="200 1000 4000" LATENCY_MS=1000 DURATION=30 MVN=mvn perf/concurrency-benchmark.sh
+#
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+LEVELS=${LEVELS:-"100 200 1000 2000 4000"}
+LATENCY_MS=${LATENCY_MS:-1000}
+DURATION=${DURATION:-20}
+HEAP=${HEAP:-1g}
+MVN=${MVN:-./mvnw}
+APP_PORT=${APP_PORT:-18080}
+STUB_PORT=${STUB_PORT:-18090}
+OUT=target/concurrency-bench
+JAR=target/AITranslatorExtension-0.0.1-SNAPSHOT.jar
+MAX_LEVEL=$(printf '%s\n' $LEVELS | sort -n | tail -1)
+APP_ARGS=(--server.port=$APP_PORT --gemini.api.key=stub --gemini.api.base-url=http://127.0.0.1:$STUB_PORT/
+    --rate.limit.ip.requests=100000000 --rate.limit.prefix.requests=100000000
+    --rate.limit.endpoint.translate.requests=100000000 --load-shedding.enabled=false
+    --scheduler.max-concurrent=$MAX_LEVEL --scheduler.queue.max-depth=$MAX_LEVEL
+    --server.tomcat.max-connections=$((MAX_LEVEL + 1000)) --server.tomcat.accept-count=$MAX_LEVEL
+    --cache.warmup.file= --usage.ledger.directory= --logging.level.root=WARN)
+
+JAVA_FEATURE=$(java -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')
+if [ "${JAVA_FEATURE%%.*}" -lt 21 ]; then
+    echo "Virtual threads need Java 21, found java $JAVA_FEATURE on PATH" >&2
+    exit 1
+fi
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+
+echo "==> Building jar (-Pvirtual-threads)"
+$MVN -q -B -Pvirtual-threads package -DskipTests
+
+java perf/GeminiStub.java "$STUB_PORT" "$LATENCY_MS" $((MAX_LEVEL + 100)) > "$OUT/stub.log" 2>&1 &
+STUB_PID=$!
+APP_PID=
+trap 'kill $STUB_PID $APP_PID 2>/dev/null || true' EXIT
+
+# $1 = pid, prints "rssKb threads"
+sample() {
+    awk '/VmRSS/ {rss = $2} /^Threads/ {threads = $2} END {print rss, threads}' "/proc/$1/status"
+}
+
+# $1 = label, rest = extra application arguments
+run_mode() {
+    local label=$1
+    shift
+    java -Xms$HEAP -Xmx$HEAP -jar "$JAR" "${APP_ARGS[@]}" "$@" > "$OUT/$label.log" 2>&1 &
+    APP_PID=$!
+    until curl -sf -o /dev/null "http://127.0.0.1:$APP_PORT/api/admin/health"; do
+        if ! kill -0 $APP_PID 2>/dev/null; then
+            echo "Application exited during startup, see $OUT/$label.log" >&2
+            exit 1
+        fi
+        sleep 0.2
+    done
+    curl -s "http://127.0.0.1:$APP_PORT/api/admin/health" | grep -o '"requestThreads":"[a-z]*"' || true
+
+    # JIT and connection warm-up before the idle baseline
+    java perf/LoadTest.java "http://127.0.0.1:$APP_PORT" 50 5 > /dev/null
+    sleep 2
+    local idle
+    idle=$(sample $APP_PID)
+
+    for level in $LEVELS; do
+        java perf/LoadTest.java "http://127.0.0.1:$APP_PORT" "$level" "$DURATION" > "$OUT/load.txt" &
+        local load_pid=$!
+        sleep $((DURATION / 2))
+        local busy
+        busy=$(sample $APP_PID)
+        wait $load_pid
+        echo "$label $(cat "$OUT/load.txt") $busy $idle" | tee -a "$OUT/results.txt"
+    done
+
+    kill -TERM $APP_PID
+    wait $APP_PID 2>/dev/null || true
+    APP_PID=
+}
+
+echo "==> Platform threads"
+run_mode platform
+echo "==> Virtual threads"
+run_mode virtual --spring.profiles.active=virtual-threads
+
+echo
+# fields: mode concurrency rps p50 p99 ok failed rssKb threads idleRssKb idleThreads
+awk '
+    BEGIN { printf "%-9s %6s %9s %8s %8s %8s %10s %8s %14s\n", "mode", "users", "req/s", "p50 ms", "p99 ms", "failed", "RSS MB", "threads", "KB per user" }
+    { printf "%-9s %6d %9.1f %8d %8d %8d %10.1f %8d %14.1f\n", $1, $2, $3, $4, $5, $7, $8 / 1024, $9, ($8 - $10) / $2 }
+' "$OUT/results.txt"
+echo "Raw results: $OUT/results.txt"
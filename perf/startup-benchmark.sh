@@ -0,0 +1,101 @@
+#!/usr/bin/env bash
+#
+# Startup benchmark: default build vs fast-start build (Spring AOT + AppCDS archive + lazy init).
+#
+# For each mode the JVM is launched RUNS times; we record the wall time from launch until the
+# first successful POST /api/generate (answered by the local Gemini stub) and the process RSS
+# at that moment. The fast-start CDS archive is produced by a training run against the stub.
+#
+# Usage: perf/startup-benchmark.sh            (Linux; needs curl and a JDK on PATH)
+#   RUNS=10 MVN=mvn perf/startup-benchmark.sh
+#
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+MVN=${MVN:-./mvnw}
+APP_PORT=${APP_PORT:-18080}
+STUB_PORT=${STUB_PORT:-18090}
+OUT=target/startup-bench
+JAR=target/AITranslatorExtension-0.0.1-SNAPSHOT.jar
+APP_ARGS=(--server.port=$APP_PORT --gemini.api.key=stub --gemini.api.base-url=http://127.0.0.1:$STUB_PORT/)
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+
+echo "==> Building default jar"
+$MVN -q -B package -DskipTests
+cp "$JAR" "$OUT/default.jar"
+
+echo "==> Building fast-start jar (Spring AOT)"
+$MVN -q -B -Pfast-start package -DskipTests
+# CDS needs classes in plain jars on the class path, not nested in the fat jar
+java -Djarmode=tools -jar "$JAR" extract --destination "$OUT/fast" > /dev/null
+FAST_JAR="$OUT/fast/$(basename "$JAR")"
+
+java perf/GeminiStub.java "$STUB_PORT" > "$OUT/stub.log" 2>&1 &
+STUB_PID=$!
+trap 'kill $STUB_PID 2>/dev/null || true' EXIT
+
+generate() {
+    curl -sf -o /dev/null -H 'Content-Type: application/json' \
+        -d "{\"text\":\"$1\",\"prompt\":\"Translate to French\"}" \
+        "http://127.0.0.1:$APP_PORT/api/generate"
+}
+
+# Poll until the first successful /api/generate; $1 = pid, $2 = log file
+wait_for_generate() {
+    until generate "warmup $RANDOM"; do
+        if ! kill -0 "$1" 2>/dev/null; then
+            echo "Application exited before serving a request, see $2" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+}
+
+echo "==> Training run for the CDS archive"
+java -XX:ArchiveClassesAtExit="$OUT/fast/app.jsa" -Dspring.aot.enabled=true \
+    -jar "$FAST_JAR" --spring.profiles.active=fast-start "${APP_ARGS[@]}" > "$OUT/training.log" 2>&1 &
+TRAIN_PID=$!
+wait_for_generate $TRAIN_PID "$OUT/training.log"
+for i in 1 2 3 4 5; do generate "training $i" || true; done
+curl -sf -o /dev/null "http://127.0.0.1:$APP_PORT/api/admin/health" || true
+kill -TERM $TRAIN_PID
+wait $TRAIN_PID 2>/dev/null || true
+[ -f "$OUT/fast/app.jsa" ] || { echo "CDS archive was not written, see $OUT/training.log" >&2; exit 1; }
+
+# $1 = label, rest = command
+measure() {
+    local label=$1
+    shift
+    for i in $(seq 1 "$RUNS"); do
+        local log="$OUT/$label-$i.log"
+        local start end rss
+        start=$(date +%s%N)
+        "$@" > "$log" 2>&1 &
+        local pid=$!
+        wait_for_generate $pid "$log"
+        end=$(date +%s%N)
+        rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+        kill -TERM $pid
+        wait $pid 2>/dev/null || true
+        echo "$label $(( (end - start) / 1000000 )) $rss" >> "$OUT/results.txt"
+    done
+}
+
+echo "==> Measuring default build ($RUNS runs)"
+measure default java -jar "$OUT/default.jar" "${APP_ARGS[@]}"
+
+echo "==> Measuring fast-start build ($RUNS runs)"
+measure fast-start java -XX:SharedArchiveFile="$OUT/fast/app.jsa" -Dspring.aot.enabled=true \
+    -jar "$FAST_JAR" --spring.profiles.active=fast-start "${APP_ARGS[@]}"
+
+echo
+awk '
+    { n[$1]++; t[$1] += $2; r[$1] += $3; if (!($1 in min) || $2 < min[$1]) min[$1] = $2 }
+    END {
+        printf "%-12s %6s %22s %22s %12s\n", "mode", "runs", "first /api/generate avg", "min", "RSS avg"
+        for (m in n) printf "%-12s %6d %19.0f ms %19d ms %9.1f MB\n", m, n[m], t[m] / n[m], min[m], r[m] / n[m] / 1024
+    }' "$OUT/results.txt"
+echo "Raw results: $OUT/results.txt"
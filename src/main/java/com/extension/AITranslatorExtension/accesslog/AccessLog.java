@@ -0,0 +1,221 @@
+package com.extension.AITranslatorExtension.accesslog;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log, written off the request thread.
+ *
+ * Each request produces one {@link AccessLogEntry}. Successful requests are kept with
+ * probability {@code access-log.success-sample-rate} unless slower than
+ * {@code access-log.slow-threshold-ms}; failures are always kept. Kept entries and
+ * deduplicated warnings go into lock-free ring buffers that a background thread drains
+ * to the {@code access} logger, one JSON line per entry. When a buffer is full the entry is
+ * dropped and counted: a request never waits for logging.
+ */
+@Component
+public class AccessLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessLog.class);
+    // Access records only, so they can be routed or silenced separately (logging.level.access)
+    private static final Logger accessLogger = LoggerFactory.getLogger("access");
+
+    private static final int WARNING_BUFFER_SIZE = 1024;
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    private final boolean enabled;
+    private final double successSampleRate;
+    private final long slowThresholdMillis;
+    private final long flushIntervalNanos;
+    private final long warningIntervalMillis;
+
+    private final RingBuffer<AccessLogEntry> entries;
+    private final RingBuffer<Warning> warnings;
+    private final WarningDeduplicator deduplicator;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder warningsLogged = new LongAdder();
+    private final LongAdder warningsSuppressed = new LongAdder();
+
+    // Writer thread only
+    private final StringBuilder line = new StringBuilder(512);
+    private long lastSweep;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AccessLog(
+            @Value("${access-log.enabled:true}") boolean enabled,
+            @Value("${access-log.buffer-size:8192}") int bufferSize,
+            @Value("${access-log.success-sample-rate:0.1}") double successSampleRate,
+            @Value("${access-log.slow-threshold-ms:2000}") long slowThresholdMillis,
+            @Value("${access-log.flush-interval-ms:200}") long flushIntervalMillis,
+            @Value("${access-log.warning.interval-ms:60000}") long warningIntervalMillis,
+            @Value("${access-log.warning.max-keys:10000}") int warningMaxKeys) {
+        this.enabled = enabled;
+        this.successSampleRate = Math.max(0.0, Math.min(1.0, successSampleRate));
+        this.slowThresholdMillis = slowThresholdMillis;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.warningIntervalMillis = warningIntervalMillis;
+        this.entries = new RingBuffer<>(bufferSize);
+        this.warnings = new RingBuffer<>(WARNING_BUFFER_SIZE);
+        this.deduplicator = new WarningDeduplicator(warningIntervalMillis, warningMaxKeys);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Access log {} (buffer {}, success sample rate {}, slow threshold {} ms)",
+                enabled ? "enabled" : "disabled", entries.capacity(), successSampleRate, slowThresholdMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record a completed request; sampled-out successes cost no more than a random draw
+     */
+    public void record(AccessLogEntry entry) {
+        if (!enabled) {
+            return;
+        }
+        if (entry.getOutcome() != null && entry.getOutcome().isSuccess()
+                && entry.getTotalMillis() < slowThresholdMillis
+                && ThreadLocalRandom.current().nextDouble() >= successSampleRate) {
+            sampledOut.increment();
+            return;
+        }
+        if (entries.offer(entry)) {
+            recorded.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Log a warning at most once per {@code access-log.warning.interval-ms} for a key; repeats
+     * within the interval are counted and reported with the next warning for the key
+     * @param target logger the warning is written to
+     * @param key what the warning is about, e.g. the limit and client that was rejected
+     * @param format SLF4J message format
+     */
+    public void warn(Logger target, String key, String format, Object... args) {
+        long suppressed = deduplicator.tryAcquire(key, System.currentTimeMillis());
+        if (suppressed < 0) {
+            warningsSuppressed.increment();
+            return;
+        }
+        if (!warnings.offer(new Warning(target, format, args, suppressed))) {
+            dropped.increment();
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Write out everything buffered
+     * @return number of lines written
+     */
+    int drain() {
+        int count = 0;
+        Warning warning;
+        while ((warning = warnings.poll()) != null) {
+            warning.log();
+            warningsLogged.increment();
+            count++;
+        }
+        AccessLogEntry entry;
+        while ((entry = entries.poll()) != null) {
+            line.setLength(0);
+            entry.appendJson(line);
+            accessLogger.info(line.toString());
+            written.increment();
+            count++;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastSweep >= SWEEP_INTERVAL_MILLIS) {
+            lastSweep = now;
+            // Report the tail of a burst that no later warning picked up
+            for (Map.Entry<String, Long> unreported : deduplicator.sweep(now)) {
+                logger.warn("{} similar warnings suppressed for {} in the last {} s",
+                        unreported.getValue(), unreported.getKey(), warningIntervalMillis / 1000);
+                count++;
+            }
+        }
+        if (line.capacity() > 64 * 1024) {
+            line.setLength(0);
+            line.trimToSize();
+        }
+        return count;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("successSampleRate", successSampleRate);
+        metrics.put("slowThresholdMs", slowThresholdMillis);
+        metrics.put("bufferCapacity", entries.capacity());
+        metrics.put("buffered", entries.size());
+        metrics.put("recorded", recorded.sum());
+        metrics.put("sampledOut", sampledOut.sum());
+        metrics.put("dropped", dropped.sum());
+        metrics.put("written", written.sum());
+        metrics.put("warningsLogged", warningsLogged.sum());
+        metrics.put("warningsSuppressed", warningsSuppressed.sum());
+        metrics.put("warningKeys", deduplicator.size());
+        return metrics;
+    }
+
+    private record Warning(Logger target, String format, Object[] args, long suppressed) {
+
+        void log() {
+            if (suppressed == 0) {
+                target.warn(format, args);
+                return;
+            }
+            Object[] withCount = Arrays.copyOf(args, args.length + 1);
+            withCount[args.length] = suppressed;
+            target.warn(format + " ({} similar warnings suppressed)", withCount);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.extension.AITranslatorExtension.accesslog;
+
+import jakarta.servlet.ServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One access log record: filled in by the components a request passes through and handed to
+ * {@link AccessLog} when the response is complete.
+ *
+ * An entry belongs to a single request thread until it is recorded; after that only the
+ * access log writer reads it. Fields that were never set are left out of the output.
+ */
+public class AccessLogEntry {
+
+    /**
+     * Request attribute holding the entry of the current request
+     */
+    public static final String ATTRIBUTE = "accessLog.entry";
+
+    private static final int MAX_ERROR_LENGTH = 200;
+
+    public enum Outcome {
+        OK,
+        CACHED,
+        PREFLIGHT,
+        INVALID,
+        RATE_LIMITED,
+        SHED,
+        REJECTED,
+        FAILED,
+        ERROR;
+
+        public boolean isSuccess() {
+            return this == OK || this == CACHED || this == PREFLIGHT;
+        }
+    }
+
+    private final long timestamp;
+    private final long startNanos;
+    private final String method;
+    private final String route;
+    private final long requestBytes;
+
+    private int status;
+    private long totalNanos = -1;
+    private Outcome outcome;
+    private String client;
+    private String priority;
+    private String cache;
+    private String limiter;
+    private long limiterRemaining = -1;
+    private long queueNanos = -1;
+    private long upstreamNanos = -1;
+    private long inputChars = -1;
+    private long outputChars = -1;
+    private int promptTokens = -1;
+    private int outputTokens = -1;
+    private boolean cachedContext;
+    private String error;
+
+    public AccessLogEntry(String method, String route, long requestBytes) {
+        this.timestamp = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.method = method;
+        this.route = route;
+        this.requestBytes = requestBytes;
+    }
+
+    /**
+     * Entry of a request, or null when access logging is off for it
+     */
+    public static AccessLogEntry of(ServletRequest request) {
+        Object entry = request.getAttribute(ATTRIBUTE);
+        return entry instanceof AccessLogEntry accessLogEntry ? accessLogEntry : null;
+    }
+
+    /**
+     * Entry of the request bound to the current thread. Outside a logged request (background
+     * work such as cache warm-up) a detached entry is returned, which is never recorded.
+     */
+    public static AccessLogEntry current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object entry = attributes != null ? attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) : null;
+        return entry instanceof AccessLogEntry accessLogEntry ? accessLogEntry : new AccessLogEntry(null, null, -1);
+    }
+
+    /**
+     * Close the entry once the response status is known
+     */
+    public void complete(int status) {
+        this.status = status;
+        this.totalNanos = System.nanoTime() - startNanos;
+        if (outcome == null) {
+            outcome = status < 400 ? Outcome.OK
+                    : status == 429 ? Outcome.RATE_LIMITED
+                    : status == 503 ? Outcome.REJECTED
+                    : status < 500 ? Outcome.INVALID
+                    : Outcome.ERROR;
+        }
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    /**
+     * Mark the request as failed with a short reason
+     */
+    public void fail(Outcome outcome, String error) {
+        this.outcome = outcome;
+        this.error = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+
+    public void setClient(String client) {
+        this.client = client;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @param cache "hit", "peer", "miss" or "preflight"
+     */
+    public void setCache(String cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param limiter "ok", or the limit that rejected the request ("ip", "endpoint")
+     */
+    public void setLimiter(String limiter, long remaining) {
+        this.limiter = limiter;
+        this.limiterRemaining = remaining;
+    }
+
+    public void setQueueNanos(long queueNanos) {
+        this.queueNanos = queueNanos;
+    }
+
+    public void setUpstreamNanos(long upstreamNanos) {
+        this.upstreamNanos = upstreamNanos;
+    }
+
+    public void setSizes(long inputChars, long outputChars) {
+        this.inputChars = inputChars;
+        this.outputChars = outputChars;
+    }
+
+    public void setTokens(int promptTokens, int outputTokens) {
+        this.promptTokens = promptTokens;
+        this.outputTokens = outputTokens;
+    }
+
+    public void setCachedContext(boolean cachedContext) {
+        this.cachedContext = cachedContext;
+    }
+
+    /**
+     * Append the entry as one line of JSON
+     */
+    void appendJson(StringBuilder out) {
+        out.append("{\"ts\":").append(timestamp);
+        appendString(out, "method", method);
+        appendString(out, "route", route);
+        out.append(",\"status\":").append(status);
+        appendString(out, "outcome", outcome != null ? outcome.name().toLowerCase(Locale.ROOT) : null);
+        appendString(out, "client", client);
+        appendString(out, "priority", priority);
+        appendString(out, "cache", cache);
+        appendString(out, "limiter", limiter);
+        appendNumber(out, "limiterRemaining", limiterRemaining);
+        appendNumber(out, "totalMs", millis(totalNanos));
+        appendNumber(out, "queueMs", millis(queueNanos));
+        appendNumber(out, "upstreamMs", millis(upstreamNanos));
+        appendNumber(out, "requestBytes", requestBytes);
+        appendNumber(out, "inputChars", inputChars);
+        appendNumber(out, "outputChars", outputChars);
+        appendNumber(out, "promptTokens", promptTokens);
+        appendNumber(out, "outputTokens", outputTokens);
+        if (cachedContext) {
+            out.append(",\"cachedContext\":true");
+        }
+        appendString(out, "error", error);
+        out.append('}');
+    }
+
+    private static long millis(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static void appendNumber(StringBuilder out, String name, long value) {
+        if (value >= 0) {
+            out.append(",\"").append(name).append("\":").append(value);
+        }
+    }
+
+    private static void appendString(StringBuilder out, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        out.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
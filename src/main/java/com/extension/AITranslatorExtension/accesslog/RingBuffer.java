@@ -0,0 +1,67 @@
+package com.extension.AITranslatorExtension.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ *
+ * Producers claim a sequence number with a CAS on the tail and publish into the slot with a
+ * release store; they never wait, and an offer into a full buffer fails instead. The consumer
+ * takes slots in sequence order and clears them before advancing the head, which frees the
+ * slot for the producer one lap later.
+ */
+final class RingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Written by the consumer only
+    private volatile long head;
+
+    RingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(T item) {
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                slots.lazySet((int) sequence & mask, item);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Next item, or null if the buffer is empty or the next producer has not published yet.
+     * Must only be called from the consumer thread.
+     */
+    T poll() {
+        long sequence = head;
+        int index = (int) sequence & mask;
+        T item = slots.get(index);
+        if (item == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head = sequence + 1;
+        return item;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+}
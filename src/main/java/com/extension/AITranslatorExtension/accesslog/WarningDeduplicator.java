@@ -0,0 +1,81 @@
+package com.extension.AITranslatorExtension.accesslog;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets one warning per key through per interval and counts the rest.
+ *
+ * The warning that opens a new interval carries the number suppressed in the previous one.
+ * Keys beyond {@code maxKeys} share one overflow window, so a flood from many distinct
+ * clients is still bounded to one warning per interval.
+ */
+final class WarningDeduplicator {
+
+    static final String OVERFLOW_KEY = "*";
+
+    private final long intervalMillis;
+    private final int maxKeys;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    WarningDeduplicator(long intervalMillis, int maxKeys) {
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.maxKeys = Math.max(1, maxKeys);
+    }
+
+    /**
+     * @return -1 if the warning should be suppressed, otherwise the number of warnings
+     *         suppressed for the key since the last one that was let through
+     */
+    long tryAcquire(String key, long now) {
+        Window window = windows.get(key);
+        if (window == null) {
+            String windowKey = windows.size() < maxKeys ? key : OVERFLOW_KEY;
+            window = windows.computeIfAbsent(windowKey, k -> new Window(now - intervalMillis));
+        }
+        long start = window.start.get();
+        if (now - start >= intervalMillis && window.start.compareAndSet(start, now)) {
+            return window.suppressed.getAndSet(0);
+        }
+        window.suppressed.incrementAndGet();
+        return -1;
+    }
+
+    /**
+     * Drop windows whose interval has ended
+     * @return keys and counts of warnings that were suppressed and never reported
+     */
+    List<Map.Entry<String, Long>> sweep(long now) {
+        List<Map.Entry<String, Long>> unreported = new ArrayList<>();
+        Iterator<Map.Entry<String, Window>> iterator = windows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Window> entry = iterator.next();
+            if (now - entry.getValue().start.get() < intervalMillis) {
+                continue;
+            }
+            iterator.remove();
+            long suppressed = entry.getValue().suppressed.getAndSet(0);
+            if (suppressed > 0) {
+                unreported.add(Map.entry(entry.getKey(), suppressed));
+            }
+        }
+        return unreported;
+    }
+
+    int size() {
+        return windows.size();
+    }
+
+    private static final class Window {
+        final AtomicLong start;
+        final AtomicLong suppressed = new AtomicLong();
+
+        Window(long start) {
+            this.start = new AtomicLong(start);
+        }
+    }
+}
@@ -1,32 +1,119 @@
 package com.extension.AITranslatorExtension.client;
 
+import com.extension.AITranslatorExtension.config.VirtualThreads;
 import com.google.genai.Client;
+import com.google.genai.types.CachedContent;
+import com.google.genai.types.GenerateContentConfig;
 import com.google.genai.types.GenerateContentResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
 @Component
 public class GeminiClient {
 
     private static final Logger logger = LoggerFactory.getLogger(GeminiClient.class);
 
+    private static final String MODEL = "gemini-2.5-flash-lite";
+
+    // Override to point at a local stub for benchmarks and training runs
+    @Value("${gemini.api.base-url:https://generativelanguage.googleapis.com/v1beta/models/}")
+    private String baseUrl;
+
+    // Run the HTTP client's response handling on virtual threads (Java 21); follows the server setting by default
+    @Value("${gemini.client.virtual-threads:${spring.threads.virtual.enabled:false}}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+    private HttpClient httpClient;
+
+    /**
+     * One HTTP client for all calls: each client owns a connection pool and a selector thread
+     */
+    @PostConstruct
+    public void init() {
+        HttpClient.Builder builder = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10));
+        if (virtualThreads) {
+            if (VirtualThreads.isSupported()) {
+                executor = VirtualThreads.newPerTaskExecutor();
+                builder.executor(executor);
+            } else {
+                logger.warn("gemini.client.virtual-threads is set but Java {} has no virtual threads; using platform threads",
+                        Runtime.version().feature());
+            }
+        }
+        httpClient = builder.build();
+        logger.info("Gemini client using {} threads", executor != null ? "virtual" : "platform");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public boolean isVirtualThreads() {
+        return executor != null;
+    }
+
     public String sendRequest(String apiKey, String prompt) throws Exception {
+        return generate(apiKey, prompt).text();
+    }
+
+    /**
+     * Send a prompt and return the full response, including reported token usage
+     */
+    public GenerateContentResponse generate(String apiKey, String prompt) throws Exception {
+        return generate(apiKey, prompt, null);
+    }
+
+    /**
+     * Send a prompt on top of a cached context
+     * @param cachedContent cached content name from {@link #createCachedContent}, or null for none
+     */
+    public GenerateContentResponse generate(String apiKey, String prompt, String cachedContent) throws Exception {
         logger.debug("Sending request to Gemini API");
 
         // Tạo client với API key
-        Client client = new Client(apiKey);
+        Client client = newClient(apiKey);
 
         // Gọi API với prompt nguyên bản từ frontend
         GenerateContentResponse response = client.models.generateContent(
-            "gemini-2.5-flash-lite",
+            MODEL,
             prompt,
-            null
+            cachedContent != null ? new GenerateContentConfig(cachedContent) : null
         );
 
         logger.debug("Received response from Gemini API");
 
         // Trả về response từ Gemini
-        return response.text();
+        return response;
+    }
+
+    /**
+     * Cache a long instruction upstream so later requests can reference it instead of resending it
+     */
+    public CachedContent createCachedContent(String apiKey, String instruction, Duration ttl) {
+        return newClient(apiKey).caches.create(MODEL, instruction, ttl);
+    }
+
+    public CachedContent refreshCachedContent(String apiKey, String name, Duration ttl) {
+        return newClient(apiKey).caches.update(name, ttl);
+    }
+
+    public void deleteCachedContent(String apiKey, String name) {
+        newClient(apiKey).caches.delete(name);
+    }
+
+    private Client newClient(String apiKey) {
+        return new Client(apiKey, baseUrl, httpClient);
     }
-}
\ No newline at end of file
+}
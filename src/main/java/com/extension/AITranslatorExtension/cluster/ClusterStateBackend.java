@@ -0,0 +1,37 @@
+package com.extension.AITranslatorExtension.cluster;
+
+import java.util.Map;
+
+/**
+ * Shared state across backend nodes: cluster-wide rate limits and translation cache lookups.
+ * The local backend (default) is a no-op; the peer backend shards state across nodes.
+ */
+public interface ClusterStateBackend {
+
+    /**
+     * Try to consume one token from the cluster-wide bucket for a key
+     * @param key limiter key, identical on every node
+     * @param capacity tokens per period
+     * @param periodSeconds refill period
+     * @return false only if the cluster-wide limit is exhausted
+     */
+    boolean tryConsume(String key, int capacity, int periodSeconds);
+
+    /**
+     * Look up a translation cached elsewhere in the cluster
+     * @return cached result or null
+     */
+    String lookupTranslation(String cacheKey);
+
+    /**
+     * Make a freshly computed translation available to other nodes
+     */
+    void publishTranslation(String cacheKey, String result);
+
+    /**
+     * Drop all cluster limiter state held by this node
+     */
+    void clear();
+
+    Map<String, Object> getMetrics();
+}
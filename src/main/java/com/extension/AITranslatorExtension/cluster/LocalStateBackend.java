@@ -0,0 +1,40 @@
+package com.extension.AITranslatorExtension.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Single-node backend: local buckets and the local cache are the only state
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "false", matchIfMissing = true)
+public class LocalStateBackend implements ClusterStateBackend {
+
+    @Override
+    public boolean tryConsume(String key, int capacity, int periodSeconds) {
+        return true;
+    }
+
+    @Override
+    public String lookupTranslation(String cacheKey) {
+        return null;
+    }
+
+    @Override
+    public void publishTranslation(String cacheKey, String result) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("mode", "local");
+        return metrics;
+    }
+}
@@ -0,0 +1,478 @@
+package com.extension.AITranslatorExtension.cluster;
+
+import com.extension.AITranslatorExtension.service.TranslationCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Peer-to-peer cluster backend.
+ *
+ * Every limiter key and cache key has one owner node on a consistent hash ring built from
+ * {@code cluster.peers}. The owner holds the authoritative bucket; other nodes take small
+ * token leases from it and spend them locally, so most requests need no network hop.
+ * Tokens still unused when a lease expires are handed back to the owner with the next lease
+ * request for the key, or by the purge when none follows, so a client that sends fewer requests
+ * than a lease holds is charged only for the requests it sent. A node fetches at most one
+ * lease per key at a time, and a refused lease is remembered until the owner's bucket refills,
+ * so a client over its limit does not cause a peer call per request. Owned buckets that have
+ * refilled completely are dropped by the same purge.
+ *
+ * Translations are cached at their owner: a node that misses locally asks the owner, and a
+ * node that computes a translation pushes it to the owner asynchronously.
+ * Peer failures fail open (local limits and the local cache still apply).
+ *
+ * Peers authenticate with the shared {@code cluster.secret}; the backend refuses to start
+ * without one, since the internal endpoints can write to the cache and drain buckets.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class PeerStateBackend implements ClusterStateBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerStateBackend.class);
+
+    public static final String TOKEN_HEADER = "X-Cluster-Token";
+
+    private final String selfUrl;
+    private final ConsistentHashRing ring;
+    private final String secret;
+    private final double leaseFraction;
+    private final long leaseTtlNanos;
+    private final Duration peerTimeout;
+    private final TranslationCache translationCache;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Authoritative buckets for keys this node owns
+    private final Map<String, OwnedBucket> ownedBuckets = new ConcurrentHashMap<>();
+    // Tokens leased from owners, spent locally
+    private final Map<String, LeaseSlot> leases = new ConcurrentHashMap<>();
+
+    private final LongAdder localGrants = new LongAdder();
+    private final LongAdder leaseFetches = new LongAdder();
+    private final LongAdder leaseDenials = new LongAdder();
+    private final LongAdder cachedDenials = new LongAdder();
+    private final LongAdder tokensReturned = new LongAdder();
+    private final LongAdder cacheLookups = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder peerErrors = new LongAdder();
+
+    public PeerStateBackend(
+            @Value("${cluster.self:http://127.0.0.1:${server.port:8080}}") String selfUrl,
+            @Value("${cluster.peers:}") List<String> peers,
+            @Value("${cluster.virtual-nodes:64}") int virtualNodes,
+            @Value("${cluster.secret:}") String secret,
+            @Value("${cluster.lease.fraction:0.1}") double leaseFraction,
+            @Value("${cluster.lease.ttl-ms:2000}") long leaseTtlMs,
+            @Value("${cluster.peer.timeout-ms:250}") long peerTimeoutMs,
+            TranslationCache translationCache) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("cluster.secret must be set when cluster.enabled=true: "
+                    + "without it anyone who can reach /internal/cluster can write to the cache and drain rate limits");
+        }
+        this.selfUrl = normalizeUrl(selfUrl);
+
+        List<String> nodes = new ArrayList<>();
+        for (String peer : peers) {
+            if (!peer.isBlank() && !nodes.contains(normalizeUrl(peer))) {
+                nodes.add(normalizeUrl(peer));
+            }
+        }
+        if (!nodes.contains(this.selfUrl)) {
+            nodes.add(this.selfUrl);
+        }
+
+        this.ring = new ConsistentHashRing(nodes, Math.max(1, virtualNodes));
+        this.secret = secret;
+        this.leaseFraction = leaseFraction;
+        this.leaseTtlNanos = TimeUnit.MILLISECONDS.toNanos(leaseTtlMs);
+        this.peerTimeout = Duration.ofMillis(peerTimeoutMs);
+        this.translationCache = translationCache;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(peerTimeout)
+                .build();
+        logger.info("Peer cluster backend initialized: self={}, nodes={}", this.selfUrl, nodes);
+    }
+
+    @Override
+    public boolean tryConsume(String key, int capacity, int periodSeconds) {
+        String owner = ring.ownerOf(key);
+        if (owner.equals(selfUrl)) {
+            localGrants.increment();
+            return grantLease(key, capacity, periodSeconds, 1, 0).granted() > 0;
+        }
+
+        LeaseSlot slot = leases.computeIfAbsent(key, k -> new LeaseSlot());
+        if (slot.tryTake(System.nanoTime())) {
+            return true;
+        }
+        if (slot.isDenied(System.nanoTime())) {
+            cachedDenials.increment();
+            return false;
+        }
+
+        // One fetch per key at a time; callers arriving meanwhile spend what it brings back
+        slot.fetchLock.lock();
+        try {
+            long now = System.nanoTime();
+            if (slot.tryTake(now)) {
+                return true;
+            }
+            if (slot.isDenied(now)) {
+                cachedDenials.increment();
+                return false;
+            }
+
+            long leaseSize = Math.max(1L, (long) Math.ceil(capacity * leaseFraction));
+            // The previous lease has expired or run out; whatever it still holds goes back with this request
+            long leftover = slot.reclaim();
+            LeaseGrant grant;
+            try {
+                leaseFetches.increment();
+                grant = requestLease(owner, key, capacity, periodSeconds, leaseSize, leftover);
+            } catch (Exception e) {
+                peerErrors.increment();
+                logger.warn("Lease request to {} failed, allowing on local limits: {}", owner, e.getMessage());
+                return true;
+            }
+
+            long periodNanos = TimeUnit.SECONDS.toNanos(periodSeconds);
+            if (grant.granted() <= 0) {
+                leaseDenials.increment();
+                long retryAfter = grant.retryAfterMillis() > 0
+                        ? TimeUnit.MILLISECONDS.toNanos(grant.retryAfterMillis()) : leaseTtlNanos;
+                slot.deniedUntil = now + Math.min(retryAfter, periodNanos);
+                return false;
+            }
+            slot.lease = new Lease(grant.granted() - 1, now + Math.min(leaseTtlNanos, periodNanos));
+            return true;
+        } finally {
+            slot.fetchLock.unlock();
+        }
+    }
+
+    /**
+     * Owner side: take back {@code returned} unused tokens of an expired lease, then hand out up
+     * to {@code requested} tokens from the authoritative bucket
+     * @return tokens granted, and when nothing was granted the time until the bucket refills
+     */
+    public LeaseGrant grantLease(String key, int capacity, int periodSeconds, long requested, long returned) {
+        LeaseGrant[] grant = new LeaseGrant[1];
+        // Under the map's lock, so the purge cannot drop a bucket while tokens are taken from it
+        ownedBuckets.compute(key, (k, owned) -> {
+            if (owned == null && requested <= 0) {
+                // Tokens returned to a bucket that was dropped as full have nowhere to go
+                grant[0] = new LeaseGrant(0L, 0L);
+                return null;
+            }
+            OwnedBucket current = owned != null ? owned : new OwnedBucket(capacity, periodSeconds);
+            if (returned > 0) {
+                long refund = Math.min(returned, current.capacity);
+                current.bucket.addTokens(refund);
+                tokensReturned.add(refund);
+            }
+            if (requested <= 0) {
+                grant[0] = new LeaseGrant(0L, 0L);
+                return current;
+            }
+            long granted = current.bucket.tryConsumeAsMuchAsPossible(Math.min(requested, capacity));
+            if (granted > 0) {
+                grant[0] = new LeaseGrant(granted, 0L);
+            } else {
+                long waitNanos = current.bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill();
+                grant[0] = new LeaseGrant(0L, Math.max(1L, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+            }
+            return current;
+        });
+        return grant[0];
+    }
+
+    @Override
+    public String lookupTranslation(String cacheKey) {
+        String owner = ring.ownerOf("cache:" + cacheKey);
+        if (owner.equals(selfUrl)) {
+            // The caller already checked the local cache
+            return null;
+        }
+
+        cacheLookups.increment();
+        try {
+            HttpResponse<String> response = httpClient.send(peerRequest(owner, "/internal/cluster/cache/" + cacheKey)
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            String result = objectMapper.readTree(response.body()).path("result").asText(null);
+            if (result != null) {
+                cacheHits.increment();
+            }
+            return result;
+        } catch (Exception e) {
+            peerErrors.increment();
+            logger.debug("Cache lookup on {} failed: {}", owner, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void publishTranslation(String cacheKey, String result) {
+        String owner = ring.ownerOf("cache:" + cacheKey);
+        if (owner.equals(selfUrl)) {
+            return;
+        }
+        try {
+            String body = objectMapper.writeValueAsString(Map.of("result", result));
+            httpClient.sendAsync(peerRequest(owner, "/internal/cluster/cache/" + cacheKey)
+                            .header("Content-Type", "application/json")
+                            .PUT(HttpRequest.BodyPublishers.ofString(body))
+                            .build(), HttpResponse.BodyHandlers.discarding())
+                    .exceptionally(e -> {
+                        peerErrors.increment();
+                        logger.debug("Cache publish to {} failed: {}", owner, e.getMessage());
+                        return null;
+                    });
+        } catch (Exception e) {
+            peerErrors.increment();
+            logger.debug("Cache publish to {} failed: {}", owner, e.getMessage());
+        }
+    }
+
+    /**
+     * Owner side: serve a cached translation to a peer
+     */
+    public String getOwnedTranslation(String cacheKey) {
+        return translationCache.get(cacheKey);
+    }
+
+    /**
+     * Owner side: store a translation pushed by a peer
+     */
+    public void storeOwnedTranslation(String cacheKey, String result) {
+        translationCache.put(cacheKey, result);
+    }
+
+    public boolean isAuthorized(String token) {
+        return token != null && MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String ownerOf(String key) {
+        return ring.ownerOf(key);
+    }
+
+    /**
+     * Tokens left in an owned bucket, or -1 if this node holds no bucket for the key
+     */
+    long availableTokens(String key) {
+        OwnedBucket owned = ownedBuckets.get(key);
+        return owned != null ? owned.bucket.getAvailableTokens() : -1;
+    }
+
+    /**
+     * Drop expired leases and denials, handing unused leased tokens back to their owners, and
+     * drop owned buckets that have refilled completely, so rarely used keys do not accumulate
+     */
+    @Scheduled(fixedDelayString = "${cluster.lease.purge-interval-ms:60000}")
+    public void purgeExpiredLeases() {
+        long now = System.nanoTime();
+        leases.entrySet().removeIf(entry -> {
+            LeaseSlot slot = entry.getValue();
+            // Skip slots a request is fetching for right now
+            if (!slot.fetchLock.tryLock()) {
+                return false;
+            }
+            try {
+                if (!slot.isIdle(now)) {
+                    return false;
+                }
+                long leftover = slot.reclaim();
+                if (leftover > 0) {
+                    returnTokens(entry.getKey(), leftover);
+                }
+                return true;
+            } finally {
+                slot.fetchLock.unlock();
+            }
+        });
+        // A full bucket is exactly what a new one would be, so dropping it loses nothing
+        for (String key : ownedBuckets.keySet()) {
+            ownedBuckets.computeIfPresent(key, (k, owned) -> owned.isFull() ? null : owned);
+        }
+    }
+
+    @Override
+    public void clear() {
+        ownedBuckets.clear();
+        leases.clear();
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("mode", "peer");
+        metrics.put("self", selfUrl);
+        metrics.put("nodes", ring.getNodes());
+        metrics.put("ownedBuckets", ownedBuckets.size());
+        metrics.put("activeLeases", leases.size());
+        metrics.put("localGrants", localGrants.sum());
+        metrics.put("leaseFetches", leaseFetches.sum());
+        metrics.put("leaseDenials", leaseDenials.sum());
+        metrics.put("cachedDenials", cachedDenials.sum());
+        metrics.put("tokensReturned", tokensReturned.sum());
+        metrics.put("cacheLookups", cacheLookups.sum());
+        metrics.put("cacheHits", cacheHits.sum());
+        metrics.put("peerErrors", peerErrors.sum());
+        return metrics;
+    }
+
+    private LeaseGrant requestLease(String owner, String key, int capacity, int periodSeconds,
+                                    long requested, long returned) throws Exception {
+        HttpResponse<String> response = httpClient.send(leaseRequest(owner, key, capacity, periodSeconds,
+                requested, returned), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Peer responded with status " + response.statusCode());
+        }
+        JsonNode root = objectMapper.readTree(response.body());
+        return new LeaseGrant(root.path("granted").asLong(0), root.path("retryAfterMillis").asLong(0));
+    }
+
+    /**
+     * Hand unused tokens of a lease nobody asked to renew back to the owner, without waiting
+     */
+    private void returnTokens(String key, long tokens) {
+        String owner = ring.ownerOf(key);
+        try {
+            httpClient.sendAsync(leaseRequest(owner, key, 0, 0, 0, tokens), HttpResponse.BodyHandlers.discarding())
+                    .exceptionally(e -> {
+                        peerErrors.increment();
+                        logger.debug("Returning leased tokens to {} failed: {}", owner, e.getMessage());
+                        return null;
+                    });
+        } catch (Exception e) {
+            peerErrors.increment();
+            logger.debug("Returning leased tokens to {} failed: {}", owner, e.getMessage());
+        }
+    }
+
+    private HttpRequest leaseRequest(String owner, String key, int capacity, int periodSeconds,
+                                     long requested, long returned) throws Exception {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("key", key);
+        payload.put("capacity", capacity);
+        payload.put("periodSeconds", periodSeconds);
+        payload.put("requested", requested);
+        payload.put("returned", returned);
+        return peerRequest(owner, "/internal/cluster/lease")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(payload)))
+                .build();
+    }
+
+    private HttpRequest.Builder peerRequest(String owner, String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(owner + path))
+                .timeout(peerTimeout)
+                .header(TOKEN_HEADER, secret);
+    }
+
+    private static String normalizeUrl(String url) {
+        String value = url.trim();
+        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    /**
+     * Result of a lease request
+     * @param granted tokens handed out
+     * @param retryAfterMillis when nothing was granted, time until the owner's bucket refills
+     */
+    public record LeaseGrant(long granted, long retryAfterMillis) {
+    }
+
+    /**
+     * Lease state of one key on a non-owner node
+     */
+    private static final class LeaseSlot {
+        final ReentrantLock fetchLock = new ReentrantLock();
+        volatile Lease lease;
+        volatile long deniedUntil = System.nanoTime();
+
+        boolean tryTake(long now) {
+            Lease current = lease;
+            return current != null && current.expiresAt - now > 0 && current.remaining.getAndDecrement() > 0;
+        }
+
+        boolean isDenied(long now) {
+            return deniedUntil - now > 0;
+        }
+
+        /**
+         * Take the unused tokens of the current lease; the lease can hand out nothing afterwards
+         */
+        long reclaim() {
+            Lease current = lease;
+            lease = null;
+            return current != null ? Math.max(0L, current.remaining.getAndSet(0)) : 0L;
+        }
+
+        boolean isIdle(long now) {
+            Lease current = lease;
+            return (current == null || current.expiresAt - now <= 0) && !isDenied(now);
+        }
+    }
+
+    /**
+     * Authoritative bucket of a key this node owns
+     */
+    private static final class OwnedBucket {
+        final Bucket bucket;
+        final int capacity;
+
+        OwnedBucket(int capacity, int periodSeconds) {
+            this.bucket = Bucket.builder()
+                    .addLimit(Bandwidth.classic(capacity, Refill.intervally(capacity, Duration.ofSeconds(periodSeconds))))
+                    .build();
+            this.capacity = capacity;
+        }
+
+        boolean isFull() {
+            return bucket.getAvailableTokens() >= capacity;
+        }
+    }
+
+    private static final class Lease {
+        final AtomicLong remaining;
+        final long expiresAt;
+
+        Lease(long remaining, long expiresAt) {
+            this.remaining = new AtomicLong(remaining);
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.extension.AITranslatorExtension.config;
 
+import com.extension.AITranslatorExtension.filter.AccessLogFilter;
+import com.extension.AITranslatorExtension.filter.LoadSheddingFilter;
 import com.extension.AITranslatorExtension.filter.RateLimitingFilter;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -8,6 +10,28 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class FilterConfig {
 
+    @Bean
+    public FilterRegistrationBean<AccessLogFilter> accessLogFilterRegistration(AccessLogFilter accessLogFilter) {
+        FilterRegistrationBean<AccessLogFilter> registrationBean = new FilterRegistrationBean<>();
+        registrationBean.setFilter(accessLogFilter);
+        registrationBean.addUrlPatterns("/api/*");
+        // Outermost, so shed and rate-limited requests are logged too
+        registrationBean.setOrder(-1);
+        registrationBean.setName("accessLogFilter");
+        return registrationBean;
+    }
+
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadShedFilter(LoadSheddingFilter loadSheddingFilter) {
+        FilterRegistrationBean<LoadSheddingFilter> registrationBean = new FilterRegistrationBean<>();
+        registrationBean.setFilter(loadSheddingFilter);
+        registrationBean.addUrlPatterns("/api/*");
+        // Runs before rate limiting so shed requests cost no bucket work
+        registrationBean.setOrder(0);
+        registrationBean.setName("loadSheddingFilter");
+        return registrationBean;
+    }
+
     @Bean
     public FilterRegistrationBean<RateLimitingFilter> rateLimitFilter(RateLimitingFilter rateLimitingFilter) {
         FilterRegistrationBean<RateLimitingFilter> registrationBean = new FilterRegistrationBean<>();
@@ -0,0 +1,134 @@
+package com.extension.AITranslatorExtension.config;
+
+import jakarta.servlet.ServletException;
+import org.apache.catalina.Lifecycle;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.tomcat.util.threads.TaskQueue;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.tomcat.ConfigurableTomcatWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stamps every request with the time Tomcat first saw it, for queue-delay measurement in
+ * {@link com.extension.AITranslatorExtension.filter.LoadSheddingFilter}.
+ *
+ * Under overload requests wait in the connector's executor queue for a worker thread, which no
+ * filter can observe. On platform threads the connector gets a pool that records when each
+ * connection was queued for processing; an engine valve hands that time to the request as
+ * {@link #ARRIVAL_NANOS_ATTRIBUTE}, or Tomcat's own request start time when the connection was
+ * already being processed (pipelining) or the connector runs on virtual threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "load-shedding.enabled", havingValue = "true", matchIfMissing = true)
+public class RequestArrivalConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestArrivalConfig.class);
+
+    /**
+     * Request attribute holding the {@link System#nanoTime()} at which the request arrived
+     */
+    public static final String ARRIVAL_NANOS_ATTRIBUTE = "requestArrival.nanos";
+
+    // nanoTime values may be negative, so "no stamp" needs a sentinel outside the usable range
+    private static final long NOT_DISPATCHED = Long.MIN_VALUE;
+    // Coyote's value for a request whose start was never recorded
+    private static final long NO_START_TIME = -1L;
+
+    // Time the task running on this worker thread was handed to the connector pool
+    private static final ThreadLocal<long[]> DISPATCHED = ThreadLocal.withInitial(() -> new long[] {NOT_DISPATCHED});
+
+    @Bean
+    public WebServerFactoryCustomizer<ConfigurableTomcatWebServerFactory> requestArrivalCustomizer() {
+        return new WebServerFactoryCustomizer<>() {
+            @Override
+            public void customize(ConfigurableTomcatWebServerFactory factory) {
+                factory.addEngineValves(new ArrivalStampValve());
+                // Connector customizers run after the thread settings have been applied
+                factory.addConnectorCustomizers(connector -> {
+                    if (connector.getProtocolHandler() instanceof AbstractProtocol<?> protocol
+                            && protocol.getExecutor() == null) {
+                        ThreadPoolExecutor executor = newStampingExecutor(protocol);
+                        protocol.setExecutor(executor);
+                        // An executor set from outside is not shut down by the connector
+                        connector.addLifecycleListener(event -> {
+                            if (Lifecycle.AFTER_STOP_EVENT.equals(event.getType())) {
+                                executor.shutdownNow();
+                            }
+                        });
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Same pool the connector would create for itself, with each task stamped on submission
+     */
+    private static ThreadPoolExecutor newStampingExecutor(AbstractProtocol<?> protocol) {
+        // The protocol name is quoted for JMX; threads get the plain endpoint name, as Tomcat's own pool does
+        String name = protocol.getName().replace("\"", "");
+        TaskQueue queue = new TaskQueue(protocol.getMaxQueueSize());
+        TaskThreadFactory threadFactory = new TaskThreadFactory(name + "-exec-", true,
+                protocol.getThreadPriority());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(protocol.getMinSpareThreads(), protocol.getMaxThreads(),
+                60, TimeUnit.SECONDS, queue, threadFactory) {
+            @Override
+            public void execute(Runnable command) {
+                long queuedAt = System.nanoTime();
+                super.execute(() -> {
+                    long[] dispatched = DISPATCHED.get();
+                    dispatched[0] = queuedAt;
+                    try {
+                        command.run();
+                    } finally {
+                        dispatched[0] = NOT_DISPATCHED;
+                    }
+                });
+            }
+        };
+        queue.setParent(executor);
+        logger.info("Connector {} stamps request arrival on its executor queue (max threads {})",
+                name, protocol.getMaxThreads());
+        return executor;
+    }
+
+    /**
+     * Earliest known arrival of a request: when its connection was queued for a worker thread,
+     * else when Tomcat started reading it
+     */
+    static long arrivalNanos(long dispatchedNanos, long startNanos, long now) {
+        if (dispatchedNanos != NOT_DISPATCHED) {
+            return dispatchedNanos;
+        }
+        return startNanos != NO_START_TIME ? startNanos : now;
+    }
+
+    static final class ArrivalStampValve extends ValveBase {
+
+        ArrivalStampValve() {
+            super(true);
+        }
+
+        @Override
+        public void invoke(Request request, Response response) throws IOException, ServletException {
+            long[] dispatched = DISPATCHED.get();
+            // Only the first request processed on a dispatch waited in the queue
+            long arrival = arrivalNanos(dispatched[0], request.getCoyoteRequest().getStartTimeNanos(), System.nanoTime());
+            dispatched[0] = NOT_DISPATCHED;
+            request.setAttribute(ARRIVAL_NANOS_ATTRIBUTE, arrival);
+            getNext().invoke(request, response);
+        }
+    }
+}
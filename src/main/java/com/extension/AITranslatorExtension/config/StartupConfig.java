@@ -0,0 +1,51 @@
+package com.extension.AITranslatorExtension.config;
+
+import com.extension.AITranslatorExtension.accesslog.AccessLog;
+import com.extension.AITranslatorExtension.client.GeminiClient;
+import com.extension.AITranslatorExtension.controller.TranslateController;
+import com.extension.AITranslatorExtension.filter.AccessLogFilter;
+import com.extension.AITranslatorExtension.filter.LoadSheddingFilter;
+import com.extension.AITranslatorExtension.filter.RateLimitingFilter;
+import com.extension.AITranslatorExtension.network.ClientIpResolver;
+import com.extension.AITranslatorExtension.preflight.PreflightClassifier;
+import com.extension.AITranslatorExtension.prompt.PromptContextCache;
+import com.extension.AITranslatorExtension.prompt.PromptTemplateRegistry;
+import com.extension.AITranslatorExtension.scheduler.PriorityRequestScheduler;
+import com.extension.AITranslatorExtension.service.RateLimitingService;
+import com.extension.AITranslatorExtension.service.TranslationCache;
+import com.extension.AITranslatorExtension.service.TranslationService;
+import com.extension.AITranslatorExtension.usage.UsageLedger;
+import com.extension.AITranslatorExtension.warmup.CacheWarmer;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Startup tuning for the fast-start profile (spring.main.lazy-initialization=true).
+ * Beans on the /api/generate path stay eager so the first request does not pay for
+ * their creation; admin, cluster and other non-critical beans are created on first use.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter requestPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                TranslateController.class,
+                TranslationService.class,
+                TranslationCache.class,
+                UsageLedger.class,
+                PreflightClassifier.class,
+                PromptTemplateRegistry.class,
+                PromptContextCache.class,
+                CacheWarmer.class,
+                PriorityRequestScheduler.class,
+                GeminiClient.class,
+                RateLimitingService.class,
+                ClientIpResolver.class,
+                RateLimitingFilter.class,
+                LoadSheddingFilter.class,
+                AccessLog.class,
+                AccessLogFilter.class);
+    }
+}
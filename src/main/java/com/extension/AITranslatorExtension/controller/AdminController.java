@@ -1,13 +1,31 @@
 package com.extension.AITranslatorExtension.controller;
 
+import com.extension.AITranslatorExtension.accesslog.AccessLog;
+import com.extension.AITranslatorExtension.cluster.ClusterStateBackend;
+import com.extension.AITranslatorExtension.config.VirtualThreads;
+import com.extension.AITranslatorExtension.filter.LoadSheddingFilter;
+import com.extension.AITranslatorExtension.preflight.PreflightClassifier;
+import com.extension.AITranslatorExtension.prompt.PromptContextCache;
+import com.extension.AITranslatorExtension.prompt.PromptTemplateRegistry;
+import com.extension.AITranslatorExtension.scheduler.PriorityRequestScheduler;
 import com.extension.AITranslatorExtension.service.RateLimitingService;
+import com.extension.AITranslatorExtension.service.RoutePolicy;
+import com.extension.AITranslatorExtension.service.RoutePolicyTable;
+import com.extension.AITranslatorExtension.service.TranslationCache;
+import com.extension.AITranslatorExtension.usage.UsageLedger;
+import com.extension.AITranslatorExtension.usage.UsageMetric;
+import com.extension.AITranslatorExtension.warmup.CacheWarmer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,6 +37,36 @@ public class AdminController {
     @Autowired
     private RateLimitingService rateLimitingService;
 
+    @Autowired
+    private PriorityRequestScheduler requestScheduler;
+
+    @Autowired
+    private LoadSheddingFilter loadSheddingFilter;
+
+    @Autowired
+    private ClusterStateBackend clusterStateBackend;
+
+    @Autowired
+    private TranslationCache translationCache;
+
+    @Autowired
+    private PreflightClassifier preflightClassifier;
+
+    @Autowired
+    private UsageLedger usageLedger;
+
+    @Autowired
+    private PromptTemplateRegistry promptTemplates;
+
+    @Autowired
+    private PromptContextCache promptContextCache;
+
+    @Autowired
+    private CacheWarmer cacheWarmer;
+
+    @Autowired
+    private AccessLog accessLog;
+
     /**
      * Clear rate limiting buckets
      */
@@ -34,15 +82,216 @@ public class AdminController {
     }
 
     /**
-     * Get system health including rate limiting
+     * Get per-prefix rate limiter state
+     */
+    @GetMapping("/rate-limit/prefixes")
+    public ResponseEntity<Map<String, Object>> getPrefixMetrics() {
+        logger.debug("Prefix rate limiter metrics requested");
+        return ResponseEntity.ok(rateLimitingService.getPrefixMetrics());
+    }
+
+    /**
+     * List active route rate limit policies
+     */
+    @GetMapping("/rate-limit/routes")
+    public ResponseEntity<Map<String, Object>> getRoutePolicies() {
+        logger.debug("Route policies requested");
+        return ResponseEntity.ok(describeRoutePolicies(rateLimitingService.getRoutePolicies()));
+    }
+
+    /**
+     * Reload route rate limit policies from configuration, keeping existing bucket state
+     */
+    @PostMapping("/rate-limit/routes/reload")
+    public ResponseEntity<Map<String, Object>> reloadRoutePolicies() {
+        logger.info("Reloading route rate limit policies");
+        RoutePolicyTable table = rateLimitingService.reloadRoutePolicies();
+        return ResponseEntity.ok(describeRoutePolicies(table));
+    }
+
+    private Map<String, Object> describeRoutePolicies(RoutePolicyTable table) {
+        Map<String, String> routes = new LinkedHashMap<>();
+        for (RoutePolicy policy : table.getPolicies()) {
+            routes.put(policy.getRoute(), policy.getRequests() + "/" + policy.getPeriodSeconds() + "s");
+        }
+        RoutePolicy defaultPolicy = table.getDefaultPolicy();
+        Map<String, Object> response = new HashMap<>();
+        response.put("routes", routes);
+        response.put("default", defaultPolicy.getRequests() + "/" + defaultPolicy.getPeriodSeconds() + "s");
+        response.put("timestamp", System.currentTimeMillis());
+        return response;
+    }
+
+    /**
+     * Get system health including rate limiting; 503 until cache warm-up has finished
      */
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> getSystemHealth() {
         logger.debug("System health check requested");
+        boolean ready = cacheWarmer.isReady();
         Map<String, Object> health = new HashMap<>();
-        health.put("status", "UP");
+        health.put("status", ready ? "UP" : "WARMING_UP");
         health.put("timestamp", System.currentTimeMillis());
         health.put("rateLimiting", "UP");
-        return ResponseEntity.ok(health);
+        health.put("loadShedding", loadSheddingFilter.isOverloaded() ? "SHEDDING" : "UP");
+        health.put("cacheWarmup", cacheWarmer.getState().name());
+        health.put("requestThreads", VirtualThreads.isVirtual(Thread.currentThread()) ? "virtual" : "platform");
+        return ready ? ResponseEntity.ok(health) : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(health);
+    }
+
+    /**
+     * Get request scheduler queue metrics per priority class
+     */
+    @GetMapping("/scheduler")
+    public ResponseEntity<Map<String, Object>> getSchedulerMetrics() {
+        logger.debug("Scheduler metrics requested");
+        return ResponseEntity.ok(requestScheduler.getMetrics());
+    }
+
+    /**
+     * Get cluster backend state and translation cache counters
+     */
+    @GetMapping("/cluster")
+    public ResponseEntity<Map<String, Object>> getClusterMetrics() {
+        logger.debug("Cluster metrics requested");
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("enabled", translationCache.isEnabled());
+        cache.put("size", translationCache.size());
+        cache.put("hits", translationCache.getHits());
+        cache.put("misses", translationCache.getMisses());
+
+        Map<String, Object> response = new LinkedHashMap<>(clusterStateBackend.getMetrics());
+        response.put("translationCache", cache);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get cache warm-up progress and snapshot state
+     */
+    @GetMapping("/cache/warmup")
+    public ResponseEntity<Map<String, Object>> getCacheWarmup() {
+        logger.debug("Cache warm-up progress requested");
+        return ResponseEntity.ok(cacheWarmer.getProgress());
+    }
+
+    /**
+     * Snapshot the hottest cache entries now, e.g. right before a deploy
+     */
+    @PostMapping("/cache/snapshot")
+    public ResponseEntity<Map<String, Object>> snapshotCache() {
+        logger.info("Cache snapshot requested");
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("entries", cacheWarmer.snapshot());
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            logger.error("Cache snapshot failed: {}", e.getMessage(), e);
+            response.put("error", "Cache snapshot failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Get load shedding state and counters
+     */
+    @GetMapping("/load-shedding")
+    public ResponseEntity<Map<String, Object>> getLoadSheddingMetrics() {
+        logger.debug("Load shedding metrics requested");
+        return ResponseEntity.ok(loadSheddingFilter.getMetrics());
+    }
+
+    /**
+     * Get access log sampling, buffer and warning deduplication counters
+     */
+    @GetMapping("/access-log")
+    public ResponseEntity<Map<String, Object>> getAccessLogMetrics() {
+        logger.debug("Access log metrics requested");
+        return ResponseEntity.ok(accessLog.getMetrics());
+    }
+
+    /**
+     * Get pre-flight counters (upstream calls answered locally)
+     */
+    @GetMapping("/preflight")
+    public ResponseEntity<Map<String, Object>> getPreflightMetrics() {
+        logger.debug("Pre-flight metrics requested");
+        return ResponseEntity.ok(preflightClassifier.getMetrics());
+    }
+
+    /**
+     * Get prompt template registry and upstream context cache state
+     */
+    @GetMapping("/prompts")
+    public ResponseEntity<Map<String, Object>> getPromptMetrics() {
+        logger.debug("Prompt metrics requested");
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("registry", promptTemplates.getMetrics(10));
+        response.put("contextCache", promptContextCache.getMetrics());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Delete all cached prompt contexts upstream
+     */
+    @DeleteMapping("/prompts/contexts")
+    public ResponseEntity<Map<String, Object>> evictPromptContexts() {
+        logger.info("Evicting cached prompt contexts");
+        Map<String, Object> response = new HashMap<>();
+        response.put("evicted", promptContextCache.evictAll());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get usage ledger state and totals per window
+     */
+    @GetMapping("/usage")
+    public ResponseEntity<Map<String, Object>> getUsageMetrics() {
+        logger.debug("Usage metrics requested");
+        return ResponseEntity.ok(usageLedger.getMetrics());
+    }
+
+    /**
+     * Get top consumers over a window (minute, hour, day) by a usage metric
+     */
+    @GetMapping("/usage/top")
+    public ResponseEntity<Map<String, Object>> getTopConsumers(
+            @RequestParam(defaultValue = "hour") String window,
+            @RequestParam(defaultValue = "requests") String metric,
+            @RequestParam(defaultValue = "10") int limit) {
+        logger.debug("Top consumers requested: window={}, metric={}", window, metric);
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            UsageMetric usageMetric = UsageMetric.parse(metric);
+            List<Map<String, Object>> consumers = usageLedger.topConsumers(window, usageMetric, Math.max(1, Math.min(limit, 1000)));
+            response.put("window", window);
+            response.put("metric", usageMetric.getKey());
+            response.put("consumers", consumers);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Get usage of one consumer over a window. The consumer is a query parameter because IPv6
+     * limit keys (2001:db8:1:2::/64) contain a slash.
+     */
+    @GetMapping("/usage/consumer")
+    public ResponseEntity<Map<String, Object>> getConsumerUsage(@RequestParam String consumer,
+                                                                @RequestParam(defaultValue = "day") String window) {
+        logger.debug("Consumer usage requested: {}", consumer);
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            response.put("consumer", consumer);
+            response.put("window", window);
+            response.putAll(usageLedger.getConsumerUsage(consumer, window));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
 }
@@ -0,0 +1,102 @@
+package com.extension.AITranslatorExtension.controller;
+
+import com.extension.AITranslatorExtension.cluster.PeerStateBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Node-to-node endpoints used by the peer cluster backend.
+ * Mapped outside /api so peer traffic is not rate limited or shed.
+ */
+@RestController
+@RequestMapping("/internal/cluster")
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterController.class);
+
+    private static final Pattern CACHE_KEY = Pattern.compile("[0-9a-f]{64}");
+
+    private final PeerStateBackend peerStateBackend;
+
+    public ClusterController(PeerStateBackend peerStateBackend) {
+        this.peerStateBackend = peerStateBackend;
+    }
+
+    /**
+     * Grant a token lease from a bucket owned by this node
+     */
+    @PostMapping("/lease")
+    public ResponseEntity<Map<String, Object>> lease(@RequestHeader(value = PeerStateBackend.TOKEN_HEADER, required = false) String token,
+                                                     @RequestBody Map<String, Object> request) {
+        if (!peerStateBackend.isAuthorized(token)) {
+            logger.warn("Rejected unauthorized lease request");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Object key = request.get("key");
+        if (!(key instanceof String) || !(request.get("capacity") instanceof Number)
+                || !(request.get("periodSeconds") instanceof Number) || !(request.get("requested") instanceof Number)) {
+            throw new IllegalArgumentException("Invalid lease request");
+        }
+
+        PeerStateBackend.LeaseGrant grant = peerStateBackend.grantLease((String) key,
+                ((Number) request.get("capacity")).intValue(),
+                ((Number) request.get("periodSeconds")).intValue(),
+                ((Number) request.get("requested")).longValue(),
+                request.get("returned") instanceof Number returned ? returned.longValue() : 0L);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("granted", grant.granted());
+        response.put("retryAfterMillis", grant.retryAfterMillis());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Serve a translation cached on this node
+     */
+    @GetMapping("/cache/{key}")
+    public ResponseEntity<Map<String, String>> getCachedTranslation(@RequestHeader(value = PeerStateBackend.TOKEN_HEADER, required = false) String token,
+                                                                    @PathVariable String key) {
+        if (!peerStateBackend.isAuthorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!CACHE_KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid cache key");
+        }
+
+        String result = peerStateBackend.getOwnedTranslation(key);
+        if (result == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, String> response = new HashMap<>();
+        response.put("result", result);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Store a translation computed by a peer
+     */
+    @PutMapping("/cache/{key}")
+    public ResponseEntity<Void> putCachedTranslation(@RequestHeader(value = PeerStateBackend.TOKEN_HEADER, required = false) String token,
+                                                     @PathVariable String key,
+                                                     @RequestBody Map<String, String> request) {
+        if (!peerStateBackend.isAuthorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!CACHE_KEY.matcher(key).matches() || request.get("result") == null) {
+            throw new IllegalArgumentException("Invalid cache entry");
+        }
+
+        peerStateBackend.storeOwnedTranslation(key, request.get("result"));
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,8 +1,12 @@
 package com.extension.AITranslatorExtension.controller;
 
+import com.extension.AITranslatorExtension.accesslog.AccessLogEntry;
 import com.extension.AITranslatorExtension.dto.TranslateRequest;
 import com.extension.AITranslatorExtension.dto.TranslateResponse;
+import com.extension.AITranslatorExtension.exception.SchedulerRejectedException;
+import com.extension.AITranslatorExtension.filter.RateLimitingFilter;
 import com.extension.AITranslatorExtension.service.TranslationService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,22 +26,38 @@ public class TranslateController {
     }
 
     @PostMapping("/generate")
-    public ResponseEntity<TranslateResponse> generate(@Valid @RequestBody TranslateRequest request) {
-        logger.info("Received generate request with prompt: {}",
-                request.getPrompt() != null ? request.getPrompt().substring(0, Math.min(50, request.getPrompt().length())) : "null");
+    public ResponseEntity<TranslateResponse> generate(@Valid @RequestBody TranslateRequest request,
+                                                      @RequestHeader(value = "X-Request-Priority", required = false) String priorityHeader,
+                                                      HttpServletRequest httpRequest) {
+        // Outcome, timings and sizes go to the access log (AccessLogFilter) instead of per-request log lines
+        AccessLogEntry entry = AccessLogEntry.of(httpRequest);
+
+        // Body field wins over the header when both are present
+        if (request.getPriority() == null && priorityHeader != null) {
+            request.setPriority(priorityHeader);
+        }
+
+        Object clientIp = httpRequest.getAttribute(RateLimitingFilter.CLIENT_IP_ATTRIBUTE);
 
         try {
-            TranslateResponse response = translationService.translate(request);
+            TranslateResponse response = translationService.translate(request,
+                    clientIp != null ? clientIp.toString() : httpRequest.getRemoteAddr());
 
             if (response.isSuccess()) {
-                logger.info("Successfully generated response");
                 return ResponseEntity.ok(response);
             } else {
-                logger.warn("Generate request failed: {}", response.getError());
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
+        } catch (SchedulerRejectedException e) {
+            if (entry != null) {
+                entry.fail(AccessLogEntry.Outcome.REJECTED, e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(TranslateResponse.error(e.getMessage()));
         } catch (Exception e) {
+            if (entry != null) {
+                entry.fail(AccessLogEntry.Outcome.ERROR, e.getMessage());
+            }
             logger.error("Unexpected error processing generate request: {}", e.getMessage(), e);
             TranslateResponse errorResponse = TranslateResponse.error("Server error: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
@@ -10,6 +10,9 @@ public class TranslateRequest {
     @NotBlank(message = "Prompt is required")
     private String prompt;
 
+    // Optional scheduling class: "interactive" (selection) or "background" (page translation)
+    private String priority;
+
     public TranslateRequest() {
     }
 
@@ -33,4 +36,12 @@ public class TranslateRequest {
     public void setPrompt(String prompt) {
         this.prompt = prompt;
     }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
 }
@@ -0,0 +1,14 @@
+package com.extension.AITranslatorExtension.exception;
+
+/**
+ * Thrown when the request scheduler cannot admit a request to the upstream API,
+ * either because its priority queue is full or because it waited too long.
+ */
+public class SchedulerRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SchedulerRejectedException(String message) {
+        super(message);
+    }
+}
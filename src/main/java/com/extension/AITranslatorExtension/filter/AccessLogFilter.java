@@ -0,0 +1,57 @@
+package com.extension.AITranslatorExtension.filter;
+
+import com.extension.AITranslatorExtension.accesslog.AccessLog;
+import com.extension.AITranslatorExtension.accesslog.AccessLogEntry;
+import com.extension.AITranslatorExtension.service.RateLimitingService;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Outermost API filter: opens an {@link AccessLogEntry} for the request, lets the filters,
+ * controller and service behind it fill it in, and records it once the response is complete.
+ *
+ * The entry names the matched route template (e.g. {@code /api/users/{id}}), never the raw
+ * request URI, so path parameters stay out of the log and routes aggregate cleanly.
+ */
+@Component
+public class AccessLogFilter implements Filter {
+
+    private final AccessLog accessLog;
+    private final RateLimitingService rateLimitingService;
+
+    public AccessLogFilter(AccessLog accessLog, RateLimitingService rateLimitingService) {
+        this.accessLog = accessLog;
+        this.rateLimitingService = rateLimitingService;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        if (!accessLog.isEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String route = rateLimitingService.getRoutePolicies()
+                .lookup(RateLimitingFilter.requestPath(httpRequest)).getRoute();
+        AccessLogEntry entry = new AccessLogEntry(httpRequest.getMethod(), route, httpRequest.getContentLengthLong());
+        httpRequest.setAttribute(AccessLogEntry.ATTRIBUTE, entry);
+
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            chain.doFilter(request, response);
+            status = ((HttpServletResponse) response).getStatus();
+        } finally {
+            Object client = httpRequest.getAttribute(RateLimitingFilter.CLIENT_IP_ATTRIBUTE);
+            entry.setClient(client != null ? client.toString() : httpRequest.getRemoteAddr());
+            entry.complete(status);
+            accessLog.record(entry);
+        }
+    }
+}
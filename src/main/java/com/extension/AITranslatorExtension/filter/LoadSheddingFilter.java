@@ -0,0 +1,258 @@
+package com.extension.AITranslatorExtension.filter;
+
+import com.extension.AITranslatorExtension.accesslog.AccessLogEntry;
+import com.extension.AITranslatorExtension.config.RequestArrivalConfig;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CoDel-style admission control for API requests.
+ *
+ * Each request is stamped by the server when Tomcat first sees it (see {@link RequestArrivalConfig})
+ * and its sojourn time is measured when it reaches this filter. When the reverse proxy also sends
+ * an {@code X-Request-Start} header, the time the request spent before reaching Tomcat is added;
+ * the proxy clock is compared with ours through the smallest proxy-to-server delay seen recently,
+ * so a constant clock skew cancels out. When the minimum sojourn over a full interval stays above the target,
+ * the queue is standing rather than bursting, and requests that already waited longer than
+ * the target are shed with a precomputed 503 until the queue drains.
+ */
+@Component
+public class LoadSheddingFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadSheddingFilter.class);
+
+    private static final byte[] SHED_RESPONSE_BODY =
+            "{\"error\":\"Server is overloaded. Please try again later.\",\"status\":503}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    // Header values further than this from the server stamp are ignored as bogus
+    private static final long MAX_SOJOURN_NANOS = TimeUnit.SECONDS.toNanos(60);
+    // Window over which the smallest proxy-to-server delay is taken as the clock offset
+    private static final long CLOCK_OFFSET_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final boolean enabled;
+    private final long targetMs;
+    private final long intervalMs;
+    private final String arrivalHeader;
+    private final int retryAfterSeconds;
+
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong intervalMinSojourn = new AtomicLong(Long.MAX_VALUE);
+    private volatile boolean overloaded;
+
+    private final WindowedMinimum proxyClockOffset = new WindowedMinimum(CLOCK_OFFSET_WINDOW_NANOS);
+
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final AtomicLong shedCount = new AtomicLong();
+    private final AtomicLong lastSojournNanos = new AtomicLong();
+
+    public LoadSheddingFilter(
+            @Value("${load-shedding.enabled:true}") boolean enabled,
+            @Value("${load-shedding.target-ms:100}") long targetMs,
+            @Value("${load-shedding.interval-ms:1000}") long intervalMs,
+            @Value("${load-shedding.arrival-header:X-Request-Start}") String arrivalHeader,
+            @Value("${load-shedding.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.enabled = enabled;
+        this.targetMs = targetMs;
+        this.intervalMs = intervalMs;
+        this.arrivalHeader = arrivalHeader;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+
+        // Keep health and admin endpoints reachable while shedding
+        String requestURI = httpRequest.getRequestURI();
+        if (!enabled || !requestURI.startsWith("/api/") || requestURI.startsWith("/api/admin/")
+                || requestURI.equals("/api/health")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long sojourn = sojournNanos(httpRequest, now);
+
+        if (!admit(sojourn, now)) {
+            shedCount.incrementAndGet();
+            AccessLogEntry entry = AccessLogEntry.of(httpRequest);
+            if (entry != null) {
+                entry.setOutcome(AccessLogEntry.Outcome.SHED);
+            }
+            sendShedResponse((HttpServletResponse) response);
+            return;
+        }
+
+        admittedCount.incrementAndGet();
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * CoDel control: track the minimum sojourn per interval and, while the previous
+     * interval's minimum exceeded the target, reject requests that are already late.
+     */
+    boolean admit(long sojourn, long now) {
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMs);
+        long start = intervalStart.get();
+
+        if (now - start >= TimeUnit.MILLISECONDS.toNanos(intervalMs) && intervalStart.compareAndSet(start, now)) {
+            long windowMin = intervalMinSojourn.getAndSet(Long.MAX_VALUE);
+            boolean wasOverloaded = overloaded;
+            // An interval with no requests at all leaves the minimum at MAX_VALUE: the queue was empty
+            overloaded = windowMin != Long.MAX_VALUE && windowMin > targetNanos;
+            if (overloaded != wasOverloaded) {
+                logger.warn("Load shedding {} (min queue delay {} ms, target {} ms)",
+                        overloaded ? "activated" : "deactivated",
+                        windowMin == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(windowMin), targetMs);
+            }
+        }
+
+        intervalMinSojourn.accumulateAndGet(sojourn, Math::min);
+        lastSojournNanos.set(sojourn);
+
+        return !overloaded || sojourn <= targetNanos;
+    }
+
+    /**
+     * Time between the request's arrival and now: the server stamp, plus the time before the
+     * request reached Tomcat when the proxy stamped it
+     */
+    private long sojournNanos(HttpServletRequest request, long now) {
+        Object stamp = request.getAttribute(RequestArrivalConfig.ARRIVAL_NANOS_ATTRIBUTE);
+        long serverSojourn = stamp instanceof Long arrivalNanos ? Math.max(0L, now - arrivalNanos) : 0L;
+
+        long arrivalMillis = parseArrivalMillis(request.getHeader(arrivalHeader));
+        if (arrivalMillis <= 0) {
+            return serverSojourn;
+        }
+        long headerSojourn = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - arrivalMillis);
+        return sojournWithProxyStamp(serverSojourn, headerSojourn, now);
+    }
+
+    /**
+     * Combine the server's sojourn with one measured from the proxy's clock. The difference is
+     * the time spent before Tomcat plus the skew between the clocks; the smallest difference
+     * seen recently stands in for skew and network latency, and only the excess counts as queueing.
+     */
+    long sojournWithProxyStamp(long serverSojourn, long headerSojourn, long now) {
+        long beforeServer = headerSojourn - serverSojourn;
+        if (Math.abs(beforeServer) > MAX_SOJOURN_NANOS) {
+            return serverSojourn;
+        }
+        long offset = proxyClockOffset.observe(beforeServer, now);
+        return serverSojourn + Math.max(0L, beforeServer - offset);
+    }
+
+    /**
+     * Parse an arrival header: "t=1700000000.123" (nginx $msec), epoch seconds,
+     * milliseconds or microseconds, with or without the "t=" prefix
+     */
+    static long parseArrivalMillis(String header) {
+        if (header == null || header.isEmpty()) {
+            return -1L;
+        }
+        String value = header.startsWith("t=") ? header.substring(2) : header;
+        try {
+            if (value.indexOf('.') >= 0) {
+                return Math.round(Double.parseDouble(value) * 1000.0);
+            }
+            long raw = Long.parseLong(value.trim());
+            // Present-day epoch values: ~1.7e9 s, ~1.7e12 ms, ~1.7e15 us, ~1.7e18 ns
+            if (raw > 100_000_000_000_000_000L) {
+                return raw / 1_000_000L;
+            }
+            if (raw > 100_000_000_000_000L) {
+                return raw / 1000L;
+            }
+            if (raw > 100_000_000_000L) {
+                return raw;
+            }
+            return raw * 1000L;
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Send the precomputed overload response
+     */
+    private void sendShedResponse(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType("application/json");
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentLength(SHED_RESPONSE_BODY.length);
+        response.getOutputStream().write(SHED_RESPONSE_BODY);
+    }
+
+    /**
+     * Current load shedding state for the admin endpoint
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("overloaded", overloaded);
+        metrics.put("targetMs", targetMs);
+        metrics.put("intervalMs", intervalMs);
+        metrics.put("lastSojournMs", TimeUnit.NANOSECONDS.toMillis(lastSojournNanos.get()));
+        long offset = proxyClockOffset.current();
+        metrics.put("proxyClockOffsetMs", offset == Long.MAX_VALUE ? null : TimeUnit.NANOSECONDS.toMillis(offset));
+        metrics.put("admitted", admittedCount.get());
+        metrics.put("shed", shedCount.get());
+        return metrics;
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * Minimum of the values observed over the current and the previous window
+     */
+    private static final class WindowedMinimum {
+        private final long windowNanos;
+        private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+        private final AtomicLong currentMin = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong previousMin = new AtomicLong(Long.MAX_VALUE);
+
+        WindowedMinimum(long windowNanos) {
+            this.windowNanos = windowNanos;
+        }
+
+        long observe(long value, long now) {
+            long start = windowStart.get();
+            if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+                previousMin.set(currentMin.getAndSet(Long.MAX_VALUE));
+            }
+            return Math.min(currentMin.accumulateAndGet(value, Math::min), previousMin.get());
+        }
+
+        long current() {
+            return Math.min(currentMin.get(), previousMin.get());
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        logger.info("Load shedding filter initialized (target {} ms, interval {} ms)", targetMs, intervalMs);
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("Load shedding filter destroyed");
+    }
+}
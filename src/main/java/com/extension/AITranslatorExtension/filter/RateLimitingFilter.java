@@ -1,6 +1,10 @@
 package com.extension.AITranslatorExtension.filter;
 
+import com.extension.AITranslatorExtension.accesslog.AccessLogEntry;
+import com.extension.AITranslatorExtension.network.ClientAddress;
+import com.extension.AITranslatorExtension.network.ClientIpResolver;
 import com.extension.AITranslatorExtension.service.RateLimitingService;
+import com.extension.AITranslatorExtension.service.RoutePolicyTable;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.UrlPathHelper;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -19,9 +24,17 @@ public class RateLimitingFilter implements Filter {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitingFilter.class);
 
+    /**
+     * Request attribute holding the resolved client IP for downstream components
+     */
+    public static final String CLIENT_IP_ATTRIBUTE = "rateLimit.clientIp";
+
     @Autowired
     private RateLimitingService rateLimitingService;
 
+    @Autowired
+    private ClientIpResolver clientIpResolver;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
@@ -32,54 +45,55 @@ public class RateLimitingFilter implements Filter {
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
         // Only apply rate limiting to API endpoints
-        String requestURI = httpRequest.getRequestURI();
-        if (!requestURI.startsWith("/api/")) {
+        String endpoint = requestPath(httpRequest);
+        if (!endpoint.startsWith("/api/")) {
             chain.doFilter(request, response);
             return;
         }
 
-        String ipAddress = getClientIpAddress(httpRequest);
-        String endpoint = requestURI;
+        ClientAddress client = clientIpResolver.resolve(httpRequest);
+        String ipAddress = client.getLimitKey();
+        httpRequest.setAttribute(CLIENT_IP_ATTRIBUTE, ipAddress);
 
-        logger.debug("Rate limiting check for IP: {} on endpoint: {}", ipAddress, endpoint);
+        // Rejections are recorded in the access log; RateLimitingService warns once per key and interval
+        AccessLogEntry entry = AccessLogEntry.of(httpRequest);
 
-        // Check IP-based rate limit (global protection)
-        if (!rateLimitingService.tryConsumeForIp(ipAddress)) {
-            logger.warn("IP rate limit exceeded for: {}", ipAddress);
-            sendRateLimitResponse(httpResponse, "IP rate limit exceeded. Please try again later.",
-                                rateLimitingService.getRemainingTokens("ip:" + ipAddress));
+        // Check IP/prefix-based rate limit (global protection)
+        if (!rateLimitingService.tryConsumeForIp(client)) {
+            long remaining = rateLimitingService.getRemainingTokens(client);
+            if (entry != null) {
+                entry.setLimiter("ip", remaining);
+            }
+            sendRateLimitResponse(httpResponse, "IP rate limit exceeded. Please try again later.", remaining);
             return;
         }
 
-        // Check endpoint-specific rate limit
-        if (!rateLimitingService.tryConsumeForEndpoint(endpoint, ipAddress)) {
-            logger.warn("Endpoint rate limit exceeded for IP: {} on endpoint: {}", ipAddress, endpoint);
-            sendRateLimitResponse(httpResponse, "Endpoint rate limit exceeded. Please slow down.",
-                                rateLimitingService.getRemainingTokens("endpoint:" + endpoint + ":" + ipAddress));
+        // Check endpoint-specific rate limit, per address or per shared key for untracked addresses of a busy prefix
+        String identity = rateLimitingService.getLimitIdentity(client);
+        if (!rateLimitingService.tryConsumeForEndpoint(endpoint, identity)) {
+            long remaining = rateLimitingService.getRemainingEndpointTokens(endpoint, identity);
+            if (entry != null) {
+                entry.setLimiter("endpoint", remaining);
+            }
+            sendRateLimitResponse(httpResponse, "Endpoint rate limit exceeded. Please slow down.", remaining);
             return;
         }
 
         // Add rate limit headers to response
-        addRateLimitHeaders(httpResponse, endpoint, ipAddress);
+        long endpointRemaining = addRateLimitHeaders(httpResponse, endpoint, client, identity);
+        if (entry != null) {
+            entry.setLimiter("ok", endpointRemaining);
+        }
 
         chain.doFilter(request, response);
     }
 
     /**
-     * Get client IP address, considering X-Forwarded-For header
+     * Path the request is dispatched on: percent-decoded and normalized, so encoding variants
+     * such as /api/gener%61te share the policy and budget of the route they reach
      */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-            return xRealIp;
-        }
-
-        return request.getRemoteAddr();
+    public static String requestPath(HttpServletRequest request) {
+        return RoutePolicyTable.normalize(UrlPathHelper.defaultInstance.getPathWithinApplication(request));
     }
 
     /**
@@ -99,20 +113,20 @@ public class RateLimitingFilter implements Filter {
         errorResponse.put("remainingRequests", remainingTokens);
 
         response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
-
-        logger.info("Rate limit response sent with {} remaining tokens", remainingTokens);
     }
 
     /**
      * Add rate limiting information to response headers
+     * @return tokens left in the endpoint bucket
      */
-    private void addRateLimitHeaders(HttpServletResponse response, String endpoint, String ipAddress) {
-        long ipRemaining = rateLimitingService.getRemainingTokens("ip:" + ipAddress);
-        long endpointRemaining = rateLimitingService.getRemainingTokens("endpoint:" + endpoint + ":" + ipAddress);
+    private long addRateLimitHeaders(HttpServletResponse response, String endpoint, ClientAddress client, String identity) {
+        long ipRemaining = rateLimitingService.getRemainingTokens(client);
+        long endpointRemaining = rateLimitingService.getRemainingEndpointTokens(endpoint, identity);
 
         response.setHeader("X-RateLimit-IP-Remaining", String.valueOf(ipRemaining));
         response.setHeader("X-RateLimit-Endpoint-Remaining", String.valueOf(endpointRemaining));
         response.setHeader("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() + 60000));
+        return endpointRemaining;
     }
 
     @Override
@@ -0,0 +1,121 @@
+package com.extension.AITranslatorExtension.network;
+
+import java.util.Arrays;
+
+/**
+ * Binary radix trie of CIDR blocks over 128-bit addresses.
+ * IPv4 blocks are stored as IPv4-mapped IPv6 (::ffff:a.b.c.d/96+n) so both families share one trie.
+ * Nodes live in parallel int arrays to keep the structure compact; lookups walk at most 128 bits.
+ */
+public final class CidrTrie {
+
+    private static final byte[] IPV4_MAPPED_PREFIX = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff};
+
+    private int[] zero = new int[16];
+    private int[] one = new int[16];
+    private boolean[] terminal = new boolean[16];
+    private int nodeCount = 1; // node 0 is the root
+    private int blockCount;
+
+    /**
+     * Add a CIDR block such as "10.0.0.0/8" or "2001:db8::/32"; a bare address is a single host
+     * @throws IllegalArgumentException if the block is not a valid literal CIDR
+     */
+    public void add(String cidr) {
+        String value = cidr.trim();
+        int slash = value.indexOf('/');
+        String addressPart = slash >= 0 ? value.substring(0, slash) : value;
+
+        byte[] address = InetAddresses.parseLiteral(addressPart);
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid CIDR address: " + cidr);
+        }
+
+        int maxLength = address.length * 8;
+        int prefixLength = maxLength;
+        if (slash >= 0) {
+            try {
+                prefixLength = Integer.parseInt(value.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid CIDR prefix length: " + cidr);
+            }
+        }
+        if (prefixLength < 0 || prefixLength > maxLength) {
+            throw new IllegalArgumentException("Invalid CIDR prefix length: " + cidr);
+        }
+
+        if (address.length == 4) {
+            insert(toMapped(address), prefixLength + 96);
+        } else {
+            insert(address, prefixLength);
+        }
+    }
+
+    /**
+     * Check whether an address (4 or 16 bytes) falls inside any stored block
+     */
+    public boolean contains(byte[] address) {
+        byte[] key = address.length == 4 ? toMapped(address) : address;
+        int node = 0;
+        for (int bit = 0; bit < 128; bit++) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = bitAt(key, bit) == 0 ? zero[node] : one[node];
+            if (node == 0) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    public boolean isEmpty() {
+        return blockCount == 0;
+    }
+
+    public int size() {
+        return blockCount;
+    }
+
+    private void insert(byte[] key, int prefixLength) {
+        int node = 0;
+        for (int bit = 0; bit < prefixLength; bit++) {
+            if (terminal[node]) {
+                // Already covered by a shorter block
+                return;
+            }
+            int[] children = bitAt(key, bit) == 0 ? zero : one;
+            if (children[node] == 0) {
+                int child = allocate();
+                // allocate() may have grown the arrays
+                children = bitAt(key, bit) == 0 ? zero : one;
+                children[node] = child;
+            }
+            node = children[node];
+        }
+        if (!terminal[node]) {
+            terminal[node] = true;
+            blockCount++;
+        }
+    }
+
+    private int allocate() {
+        if (nodeCount == terminal.length) {
+            int capacity = terminal.length * 2;
+            zero = Arrays.copyOf(zero, capacity);
+            one = Arrays.copyOf(one, capacity);
+            terminal = Arrays.copyOf(terminal, capacity);
+        }
+        return nodeCount++;
+    }
+
+    private static int bitAt(byte[] key, int bit) {
+        return (key[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+    }
+
+    private static byte[] toMapped(byte[] ipv4) {
+        byte[] mapped = Arrays.copyOf(IPV4_MAPPED_PREFIX, 16);
+        System.arraycopy(ipv4, 0, mapped, 12, 4);
+        return mapped;
+    }
+}
@@ -0,0 +1,54 @@
+package com.extension.AITranslatorExtension.network;
+
+/**
+ * Resolved client address with the keys used for hierarchical rate limiting.
+ * IPv4: limit key is the /32, prefix key the /24.
+ * IPv6: limit key is the /64 (one subscriber), prefix key the /48 (one site).
+ */
+public final class ClientAddress {
+
+    private final String address;
+    private final String limitKey;
+    private final String prefixKey;
+
+    private ClientAddress(String address, String limitKey, String prefixKey) {
+        this.address = address;
+        this.limitKey = limitKey;
+        this.prefixKey = prefixKey;
+    }
+
+    public static ClientAddress of(byte[] address) {
+        String formatted = InetAddresses.format(address);
+        if (address.length == 4) {
+            return new ClientAddress(formatted, formatted, InetAddresses.formatPrefix(address, 24));
+        }
+        return new ClientAddress(formatted,
+                InetAddresses.formatPrefix(address, 64),
+                InetAddresses.formatPrefix(address, 48));
+    }
+
+    /**
+     * Fallback for a remote address that is not an IP literal (e.g. unix socket)
+     */
+    public static ClientAddress unparsed(String remoteAddr) {
+        String value = remoteAddr != null ? remoteAddr : "unknown";
+        return new ClientAddress(value, value, value);
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getLimitKey() {
+        return limitKey;
+    }
+
+    public String getPrefixKey() {
+        return prefixKey;
+    }
+
+    @Override
+    public String toString() {
+        return address;
+    }
+}
@@ -0,0 +1,69 @@
+package com.extension.AITranslatorExtension.network;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Resolves the real client address behind trusted reverse proxies.
+ *
+ * Forwarding headers are only honoured when the direct peer is a trusted proxy. The
+ * X-Forwarded-For chain is then walked right to left, skipping trusted hops, and the first
+ * untrusted hop is the client. Entries to its left are client-supplied and ignored.
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientIpResolver.class);
+
+    private final CidrTrie trustedProxies = new CidrTrie();
+
+    public ClientIpResolver(@Value("${rate.limit.trusted-proxies:127.0.0.1/32,::1/128}") List<String> trustedProxyCidrs) {
+        for (String cidr : trustedProxyCidrs) {
+            if (!cidr.isBlank()) {
+                trustedProxies.add(cidr);
+            }
+        }
+        logger.info("Client IP resolver initialized with {} trusted proxy blocks", trustedProxies.size());
+    }
+
+    public ClientAddress resolve(HttpServletRequest request) {
+        return resolve(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"), request.getHeader("X-Real-IP"));
+    }
+
+    ClientAddress resolve(String remoteAddr, String xForwardedFor, String xRealIp) {
+        byte[] remote = InetAddresses.parseLiteral(remoteAddr);
+        if (remote == null) {
+            return ClientAddress.unparsed(remoteAddr);
+        }
+        if (!trustedProxies.contains(remote)) {
+            return ClientAddress.of(remote);
+        }
+
+        byte[] client = remote;
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            int end = xForwardedFor.length();
+            while (end > 0) {
+                int start = xForwardedFor.lastIndexOf(',', end - 1) + 1;
+                byte[] hop = InetAddresses.parseLiteral(xForwardedFor.substring(start, end));
+                if (hop == null) {
+                    // Garbage (e.g. "unknown") breaks the chain; keep the last valid hop
+                    break;
+                }
+                client = hop;
+                if (!trustedProxies.contains(hop)) {
+                    break;
+                }
+                end = start - 1;
+            }
+            return ClientAddress.of(client);
+        }
+
+        byte[] realIp = InetAddresses.parseLiteral(xRealIp);
+        return ClientAddress.of(realIp != null ? realIp : remote);
+    }
+}
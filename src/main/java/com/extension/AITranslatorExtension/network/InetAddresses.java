@@ -0,0 +1,107 @@
+package com.extension.AITranslatorExtension.network;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * IP literal parsing that never falls back to DNS.
+ * Header values are attacker-controlled, so anything that is not a strict literal is rejected.
+ */
+public final class InetAddresses {
+
+    private InetAddresses() {
+    }
+
+    /**
+     * Parse an IPv4 or IPv6 literal, tolerating brackets, ports and zone IDs as seen in proxy headers
+     * @return 4 bytes for IPv4 (including IPv4-mapped IPv6), 16 bytes for IPv6, or null if not a literal
+     */
+    public static byte[] parseLiteral(String value) {
+        if (value == null) {
+            return null;
+        }
+        String literal = value.trim();
+        if (literal.isEmpty()) {
+            return null;
+        }
+
+        if (literal.charAt(0) == '[') {
+            int close = literal.indexOf(']');
+            if (close < 0) {
+                return null;
+            }
+            literal = literal.substring(1, close);
+        } else if (literal.indexOf(':') == literal.lastIndexOf(':') && literal.indexOf('.') >= 0) {
+            // "1.2.3.4:5678"
+            int colon = literal.indexOf(':');
+            if (colon >= 0) {
+                literal = literal.substring(0, colon);
+            }
+        }
+
+        int zone = literal.indexOf('%');
+        if (zone >= 0) {
+            literal = literal.substring(0, zone);
+        }
+
+        if (literal.indexOf(':') < 0) {
+            return parseIpv4(literal);
+        }
+
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                return null;
+            }
+        }
+        try {
+            // A string containing ':' is always parsed as an IPv6 literal, never resolved
+            return InetAddress.getByName(literal).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Format an address, clearing all bits past the prefix length
+     */
+    public static String formatPrefix(byte[] address, int prefixLength) {
+        byte[] masked = address.clone();
+        for (int bit = prefixLength; bit < masked.length * 8; bit++) {
+            masked[bit >>> 3] &= (byte) ~(1 << (7 - (bit & 7)));
+        }
+        return format(masked) + "/" + prefixLength;
+    }
+
+    public static String format(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid address length: " + address.length, e);
+        }
+    }
+
+    private static byte[] parseIpv4(String literal) {
+        byte[] bytes = new byte[4];
+        int octet = 0;
+        int value = -1;
+        for (int i = 0; i <= literal.length(); i++) {
+            char c = i < literal.length() ? literal.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || octet > 3) {
+                    return null;
+                }
+                bytes[octet++] = (byte) value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return octet == 4 ? bytes : null;
+    }
+}
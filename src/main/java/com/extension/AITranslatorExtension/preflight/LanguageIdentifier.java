@@ -0,0 +1,191 @@
+package com.extension.AITranslatorExtension.preflight;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Small, fast language identifier for the pre-flight stage.
+ *
+ * Non-Latin scripts are identified by Unicode script. Vietnamese is identified by its
+ * distinctive letters and tone marks. Other Latin-script languages are scored with
+ * character trigram profiles (the most frequent trigrams of each language, rank weighted,
+ * '_' standing for a word boundary). Inputs are only labelled when the winner is clear;
+ * everything else is {@code null} and goes to the model.
+ */
+public final class LanguageIdentifier {
+
+    private static final int MAX_CHARS = 300;
+    private static final int MIN_LATIN_LETTERS = 20;
+
+    private static final String[] LATIN_LANGUAGES = {"en", "es", "fr", "de", "pt", "it", "id"};
+
+    private static final String[] LATIN_PROFILES = {
+            // en
+            "_th the he_ _an and nd_ _of of_ _to to_ ed_ ing ng_ _in in_ is_ _is er_ _a_ ion on_ "
+                    + "at_ es_ re_ tio _wh _be _ha hat tha _fo for or_ _it it_ you _yo ou_ ere ent her _wi ith",
+            // es
+            "_de de_ _la la_ os_ _el el_ es_ _qu que ue_ _en en_ as_ ión _co ent _lo ado ara par "
+                    + "_se _pa _un ien los _po con _es sta ón_ ció nte _re era _su _ha aci est ero",
+            // fr
+            "_de de_ es_ _le le_ ent _la la_ les _et et_ ion _qu que ue_ _un _pa our ous _co re_ "
+                    + "ait _po _da dan ans _en ons _es ur_ eur _pr _ce ire tio _su men ais ne_ qui _ne",
+            // de
+            "en_ er_ der _de ie_ die _di ch_ ein sch che ich und _un nd_ den _ei cht ung gen ter ten "
+                    + "_zu _da _ge _ni nic ht_ _ic ine _si sie _au _be _is ist st_ _mi mit ber _wi",
+            // pt
+            "_de de_ os_ _qu que ue_ ão_ ção _co do_ da_ _a_ em_ ent _se es_ as_ _pa com ara _e_ "
+                    + "_um _no _do _da ado nte _po par _em ões _ma est _ne não _nã ela _es ica uma",
+            // it
+            "_di di_ la_ _la che _ch to_ re_ del ell _de ne_ no_ ion ent lla per _pe are ato con "
+                    + "_co _il il_ _in _un _è_ one zio _no _pr _so _se gli _gl ere ita ess sso _ma",
+            // id
+            "an_ ang ng_ kan _me men _be di_ nya yan _ya ber ala dan _da ata eng ah_ er_ per _pe "
+                    + "_di _ke _se _ma ini _in ak_ ran ika aka lah _it itu tu_ ada _ad ema gan ung"
+    };
+
+    // trigram -> weight per Latin language
+    private static final Map<String, float[]> TRIGRAM_WEIGHTS = new HashMap<>();
+
+    static {
+        for (int lang = 0; lang < LATIN_PROFILES.length; lang++) {
+            String[] trigrams = LATIN_PROFILES[lang].split(" ");
+            for (int rank = 0; rank < trigrams.length; rank++) {
+                String trigram = trigrams[rank].replace('_', ' ');
+                float[] weights = TRIGRAM_WEIGHTS.computeIfAbsent(trigram, k -> new float[LATIN_LANGUAGES.length]);
+                // Higher-ranked trigrams count more
+                weights[lang] = Math.max(weights[lang], 1.0f + (trigrams.length - rank) / (float) trigrams.length);
+            }
+        }
+    }
+
+    private LanguageIdentifier() {
+    }
+
+    /**
+     * @return ISO 639-1 code, or null when the language cannot be identified confidently
+     */
+    public static String identify(String text) {
+        int length = Math.min(text.length(), MAX_CHARS);
+
+        int letters = 0;
+        int latin = 0;
+        int vietnamese = 0;
+        int han = 0;
+        int kana = 0;
+        int hangul = 0;
+        int thai = 0;
+        int cyrillic = 0;
+        int arabic = 0;
+
+        for (int i = 0; i < length; ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (!Character.isLetter(cp)) {
+                continue;
+            }
+            letters++;
+            switch (Character.UnicodeScript.of(cp)) {
+                case LATIN -> {
+                    latin++;
+                    if (isVietnameseLetter(cp)) {
+                        vietnamese++;
+                    }
+                }
+                case HAN -> han++;
+                case HIRAGANA, KATAKANA -> kana++;
+                case HANGUL -> hangul++;
+                case THAI -> thai++;
+                case CYRILLIC -> cyrillic++;
+                case ARABIC -> arabic++;
+                default -> {
+                }
+            }
+        }
+
+        if (letters == 0) {
+            return null;
+        }
+        // Japanese mixes kanji with kana; kana alone is enough to rule out Chinese
+        if (kana * 10 >= letters && (kana + han) * 10 >= letters * 8) {
+            return "ja";
+        }
+        if (han * 10 >= letters * 8) {
+            return "zh";
+        }
+        if (hangul * 10 >= letters * 8) {
+            return "ko";
+        }
+        if (thai * 10 >= letters * 8) {
+            return "th";
+        }
+        if (cyrillic * 10 >= letters * 8) {
+            return "ru";
+        }
+        if (arabic * 10 >= letters * 8) {
+            return "ar";
+        }
+        if (latin * 10 < letters * 9 || latin < MIN_LATIN_LETTERS) {
+            return null;
+        }
+        if (vietnamese * 20 >= latin) {
+            return "vi";
+        }
+        return identifyLatin(text, length);
+    }
+
+    private static String identifyLatin(String text, int length) {
+        float[] scores = new float[LATIN_LANGUAGES.length];
+        char a = ' ';
+        char b = ' ';
+        int trigrams = 0;
+        char[] window = new char[3];
+
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if (!Character.isLetter(c)) {
+                c = ' ';
+            }
+            if (c == ' ' && b == ' ') {
+                continue;
+            }
+            window[0] = a;
+            window[1] = b;
+            window[2] = c;
+            float[] weights = TRIGRAM_WEIGHTS.get(new String(window));
+            if (weights != null) {
+                for (int lang = 0; lang < scores.length; lang++) {
+                    scores[lang] += weights[lang];
+                }
+            }
+            trigrams++;
+            a = b;
+            b = c;
+        }
+
+        int best = -1;
+        float bestScore = 0f;
+        float secondScore = 0f;
+        for (int lang = 0; lang < scores.length; lang++) {
+            if (scores[lang] > bestScore) {
+                secondScore = bestScore;
+                bestScore = scores[lang];
+                best = lang;
+            } else if (scores[lang] > secondScore) {
+                secondScore = scores[lang];
+            }
+        }
+
+        // Require profile coverage and a clear margin over the runner-up
+        if (best < 0 || bestScore < trigrams * 0.2f || bestScore < secondScore * 1.25f) {
+            return null;
+        }
+        return LATIN_LANGUAGES[best];
+    }
+
+    private static boolean isVietnameseLetter(int cp) {
+        int lower = Character.toLowerCase(cp);
+        // ă đ ơ ư (â ê ô also occur in French and Portuguese) and the tone-marked vowels block
+        return lower == 'ă' || lower == 'đ' || lower == 'ơ' || lower == 'ư'
+                || (lower >= 0x1EA0 && lower <= 0x1EF9);
+    }
+}
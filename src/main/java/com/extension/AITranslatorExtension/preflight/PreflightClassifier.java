@@ -0,0 +1,232 @@
+package com.extension.AITranslatorExtension.preflight;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local pre-flight stage in front of the Gemini call.
+ *
+ * For prompts that ask for nothing but a translation, inputs that a translation would
+ * return unchanged are answered locally: text without letters (numbers, emoji,
+ * punctuation), URLs, e-mail addresses, code identifiers, and text already written in
+ * the requested target language. Compound prompts ("translate and explain") and anything
+ * else uncertain go to the model.
+ */
+@Component
+public class PreflightClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(PreflightClassifier.class);
+
+    /**
+     * Why a request was answered locally
+     */
+    public enum Reason {
+        NO_LETTERS,
+        URL,
+        EMAIL,
+        CODE,
+        ALREADY_TARGET_LANGUAGE
+    }
+
+    private static final int MAX_TOKEN_LENGTH = 256;
+
+    private static final Pattern TRANSLATION_PROMPT = Pattern.compile("translat|dịch|traduc|übersetz", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TARGET_LANGUAGE = Pattern.compile(
+            "\\b(?:to|into|sang)\\s+(?:tiếng\\s+)?(\\p{L}+)", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Pattern URL = Pattern.compile("(?i)(?:https?://|www\\.)[^\\s]+");
+    private static final Pattern EMAIL = Pattern.compile("[\\w.+-]+@[\\w-]+(?:\\.[\\w-]+)+");
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{M}]+");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][\\w$]*(?:\\.[A-Za-z_$][\\w$]*)*(?:\\(\\))?");
+
+    private static final Map<String, String> LANGUAGE_NAMES = new LinkedHashMap<>();
+
+    // Besides language names, the only words a prompt may contain to count as a plain translation request
+    private static final Set<String> INSTRUCTION_WORDS = Set.of(
+            "please", "translate", "translation", "the", "following", "this", "text", "sentence", "paragraph",
+            "below", "from", "to", "into", "only",
+            "hãy", "dịch", "đoạn", "văn", "bản", "câu", "sau", "này", "từ", "sang", "tiếng");
+
+    static {
+        register("en", "english", "anh", "en");
+        register("vi", "vietnamese", "việt", "viet", "vi");
+        register("es", "spanish", "español", "espanol", "es");
+        register("fr", "french", "français", "francais", "pháp", "fr");
+        register("de", "german", "deutsch", "đức", "de");
+        register("pt", "portuguese", "português", "pt");
+        register("it", "italian", "italiano", "it");
+        register("id", "indonesian", "indonesia");
+        register("ja", "japanese", "nhật", "ja");
+        register("zh", "chinese", "trung", "zh");
+        register("ko", "korean", "hàn", "ko");
+        register("th", "thai", "thái");
+        register("ru", "russian", "nga", "ru");
+        register("ar", "arabic", "ả rập", "ar");
+    }
+
+    private final boolean enabled;
+    private final Map<Reason, LongAdder> avoided = new EnumMap<>(Reason.class);
+    private final LongAdder checked = new LongAdder();
+
+    public PreflightClassifier(@Value("${preflight.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        for (Reason reason : Reason.values()) {
+            avoided.put(reason, new LongAdder());
+        }
+        logger.info("Pre-flight classifier {}", enabled ? "enabled" : "disabled");
+    }
+
+    /**
+     * Decide whether a request can be answered without the model
+     * @return the reason the text can be returned unchanged, or null if the model is needed
+     */
+    public Reason classify(String prompt, String text) {
+        if (!enabled || !TRANSLATION_PROMPT.matcher(prompt).find() || !isTranslationOnly(prompt)) {
+            return null;
+        }
+        checked.increment();
+
+        String trimmed = text.strip();
+        Reason reason = classifyToken(trimmed);
+        if (reason == null) {
+            String target = targetLanguage(prompt);
+            if (target != null && target.equals(LanguageIdentifier.identify(trimmed))) {
+                reason = Reason.ALREADY_TARGET_LANGUAGE;
+            }
+        }
+
+        if (reason != null) {
+            avoided.get(reason).increment();
+            logger.debug("Pre-flight answered request locally: {}", reason);
+        }
+        return reason;
+    }
+
+    /**
+     * True if every word of the prompt is part of a translation instruction, so the text
+     * returned unchanged is a complete answer
+     */
+    static boolean isTranslationOnly(String prompt) {
+        for (String word : WORD_SEPARATOR.split(prompt.strip().toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty() && !INSTRUCTION_WORDS.contains(word) && !LANGUAGE_NAMES.containsKey(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Reason classifyToken(String text) {
+        if (!containsLetter(text)) {
+            return Reason.NO_LETTERS;
+        }
+        if (text.length() > MAX_TOKEN_LENGTH || containsWhitespace(text)) {
+            return null;
+        }
+        if (URL.matcher(text).matches()) {
+            return Reason.URL;
+        }
+        if (EMAIL.matcher(text).matches()) {
+            return Reason.EMAIL;
+        }
+        if (IDENTIFIER.matcher(text).matches() && looksLikeCode(text)) {
+            return Reason.CODE;
+        }
+        return null;
+    }
+
+    /**
+     * Identifier with a code signal: snake_case, call parens, a dotted member path, camelCase
+     * starting with a lowercase word (userName), or PascalCase of at least three words
+     * (ThreadPoolExecutor). Names and brands such as McDonald, iPhone or YouTube do not qualify.
+     */
+    private static boolean looksLikeCode(String token) {
+        // IDENTIFIER only admits a dot between two identifier segments
+        if (token.indexOf('_') >= 0 || token.indexOf('$') >= 0 || token.endsWith("()") || token.indexOf('.') >= 0) {
+            return true;
+        }
+        int leadingLower = 0;
+        while (leadingLower < token.length() && Character.isLowerCase(token.charAt(leadingLower))) {
+            leadingLower++;
+        }
+        // Capitalised words: a capital followed by a lowercase letter
+        int capitalized = 0;
+        for (int i = 1; i < token.length(); i++) {
+            if (Character.isUpperCase(token.charAt(i - 1)) && Character.isLowerCase(token.charAt(i))) {
+                capitalized++;
+            }
+        }
+        if (leadingLower >= 2) {
+            return capitalized >= 1;
+        }
+        return leadingLower == 0 && capitalized >= 3;
+    }
+
+    /**
+     * Target language code named in the prompt, e.g. "Translate to Vietnamese" or "Dịch sang tiếng Anh"
+     */
+    static String targetLanguage(String prompt) {
+        Matcher matcher = TARGET_LANGUAGE.matcher(prompt);
+        while (matcher.find()) {
+            String code = LANGUAGE_NAMES.get(matcher.group(1).toLowerCase(Locale.ROOT));
+            if (code != null) {
+                return code;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsLetter(String text) {
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            if (Character.isLetter(cp)) {
+                return true;
+            }
+            i += Character.charCount(cp);
+        }
+        return false;
+    }
+
+    private static boolean containsWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void register(String code, String... names) {
+        for (String name : names) {
+            LANGUAGE_NAMES.put(name, code);
+        }
+    }
+
+    /**
+     * Upstream calls avoided, per reason
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long total = 0;
+        Map<String, Long> byReason = new LinkedHashMap<>();
+        for (Map.Entry<Reason, LongAdder> entry : avoided.entrySet()) {
+            long count = entry.getValue().sum();
+            byReason.put(entry.getKey().name().toLowerCase(Locale.ROOT), count);
+            total += count;
+        }
+        metrics.put("enabled", enabled);
+        metrics.put("checked", checked.sum());
+        metrics.put("upstreamCallsAvoided", total);
+        metrics.put("byReason", byReason);
+        return metrics;
+    }
+}
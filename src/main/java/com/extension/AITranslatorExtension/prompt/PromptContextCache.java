@@ -0,0 +1,301 @@
+package com.extension.AITranslatorExtension.prompt;
+
+import com.extension.AITranslatorExtension.client.GeminiClient;
+import com.google.genai.types.CachedContent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Upstream context caching for long instructions that repeat.
+ *
+ * Once a template is long enough and has been used often enough, its instruction is
+ * registered with Gemini's cachedContents API in the background; later requests reference
+ * the cached context and send only the text. A periodic sweep extends the TTL of contexts
+ * still in use, deletes idle ones, and retries failed creations after a back-off. Requests
+ * never wait on this lifecycle: until a context is ready the full prompt is sent.
+ */
+@Component
+public class PromptContextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptContextCache.class);
+
+    // Stop referencing a context this long before it expires upstream
+    private static final long EXPIRY_MARGIN_MS = 5_000L;
+
+    private final GeminiClient geminiClient;
+    private final boolean enabled;
+    private final int minChars;
+    private final long minUses;
+    private final int maxContexts;
+    private final Duration ttl;
+    private final long refreshAheadMs;
+    private final long idleTimeoutMs;
+    private final long retryAfterMs;
+
+    @Value("${gemini.api.key}")
+    private String apiKey;
+
+    // Keyed by template ID
+    private final Map<String, Context> contexts = new ConcurrentHashMap<>();
+    // Upstream calls of the lifecycle run here, off the request and scheduling threads
+    private final ExecutorService lifecycle = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "prompt-context-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder cachedTokens = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder refreshed = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public PromptContextCache(
+            GeminiClient geminiClient,
+            @Value("${prompt.context-cache.enabled:true}") boolean enabled,
+            @Value("${prompt.context-cache.min-chars:4000}") int minChars,
+            @Value("${prompt.context-cache.min-uses:3}") long minUses,
+            @Value("${prompt.context-cache.max-contexts:20}") int maxContexts,
+            @Value("${prompt.context-cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${prompt.context-cache.refresh-ahead-seconds:120}") long refreshAheadSeconds,
+            @Value("${prompt.context-cache.idle-timeout-seconds:900}") long idleTimeoutSeconds,
+            @Value("${prompt.context-cache.retry-after-seconds:300}") long retryAfterSeconds) {
+        this.geminiClient = geminiClient;
+        this.enabled = enabled;
+        this.minChars = minChars;
+        this.minUses = minUses;
+        this.maxContexts = maxContexts;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.refreshAheadMs = TimeUnit.SECONDS.toMillis(refreshAheadSeconds);
+        this.idleTimeoutMs = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        this.retryAfterMs = TimeUnit.SECONDS.toMillis(retryAfterSeconds);
+        logger.info("Prompt context cache {} (min {} chars, min {} uses, ttl {} s)",
+                enabled ? "enabled" : "disabled", minChars, minUses, ttlSeconds);
+    }
+
+    /**
+     * Cached context to reference for a template, scheduling its creation when the template qualifies
+     * @return cached content name, or null to send the full prompt
+     */
+    public String contextFor(PromptTemplate template) {
+        if (!enabled) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Context context = contexts.get(template.getId());
+        if (context != null) {
+            String name = context.name;
+            if (name != null && context.expiresAt - EXPIRY_MARGIN_MS > now) {
+                context.lastUsed = now;
+                hits.increment();
+                return name;
+            }
+            return null;
+        }
+
+        if (template.getInstruction().length() < minChars || template.getUses() < minUses
+                || contexts.size() >= maxContexts) {
+            return null;
+        }
+        Context pending = new Context(template);
+        if (contexts.putIfAbsent(template.getId(), pending) == null) {
+            submit(() -> create(pending));
+        }
+        return null;
+    }
+
+    /**
+     * Record prompt tokens Gemini served from a cached context
+     */
+    public void recordCachedTokens(long tokens) {
+        cachedTokens.add(tokens);
+    }
+
+    /**
+     * Drop a context that failed upstream, e.g. expired or deleted early
+     */
+    public void invalidate(PromptTemplate template, String name) {
+        Context context = contexts.get(template.getId());
+        if (context != null && name.equals(context.name) && contexts.remove(template.getId(), context)) {
+            failures.increment();
+            submit(() -> delete(name));
+        }
+    }
+
+    private void create(Context context) {
+        try {
+            CachedContent content = geminiClient.createCachedContent(apiKey, context.template.getInstruction(), ttl);
+            context.expiresAt = expiryOf(content);
+            context.lastUsed = System.currentTimeMillis();
+            context.name = content.name();
+            created.increment();
+            logger.info("Created cached context {} for prompt template {}", content.name(), context.template.getId());
+        } catch (Exception e) {
+            failures.increment();
+            context.failedAt = System.currentTimeMillis();
+            logger.warn("Could not create cached context for prompt template {}: {}", context.template.getId(), e.getMessage());
+        }
+    }
+
+    private void refresh(Context context) {
+        String name = context.name;
+        try {
+            CachedContent content = geminiClient.refreshCachedContent(apiKey, name, ttl);
+            context.expiresAt = expiryOf(content);
+            refreshed.increment();
+            logger.debug("Refreshed cached context {}", name);
+        } catch (Exception e) {
+            failures.increment();
+            logger.warn("Could not refresh cached context {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void delete(String name) {
+        try {
+            geminiClient.deleteCachedContent(apiKey, name);
+            logger.debug("Deleted cached context {}", name);
+        } catch (Exception e) {
+            // It expires upstream on its own
+            logger.debug("Could not delete cached context {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            lifecycle.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            logger.debug("Prompt context task rejected: {}", e.getMessage());
+        }
+    }
+
+    private long expiryOf(CachedContent content) {
+        return content.expireTime() != null
+                ? content.expireTime().toEpochMilli()
+                : System.currentTimeMillis() + ttl.toMillis();
+    }
+
+    /**
+     * Refresh contexts in use, evict idle and expired ones, and allow failed creations to be retried
+     */
+    @Scheduled(fixedDelayString = "${prompt.context-cache.sweep-interval-ms:30000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        Iterator<Context> iterator = contexts.values().iterator();
+        while (iterator.hasNext()) {
+            Context context = iterator.next();
+            String name = context.name;
+            if (name == null) {
+                if (context.failedAt > 0 && now - context.failedAt > retryAfterMs) {
+                    iterator.remove();
+                }
+            } else if (now - context.lastUsed > idleTimeoutMs) {
+                iterator.remove();
+                evicted.increment();
+                submit(() -> delete(name));
+            } else if (context.expiresAt <= now) {
+                iterator.remove();
+            } else if (context.expiresAt - now < refreshAheadMs && !context.refreshing) {
+                context.refreshing = true;
+                submit(() -> {
+                    try {
+                        refresh(context);
+                    } finally {
+                        context.refreshing = false;
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Delete every cached context upstream
+     * @return number of contexts evicted
+     */
+    public int evictAll() {
+        List<String> names = new ArrayList<>();
+        Iterator<Context> iterator = contexts.values().iterator();
+        while (iterator.hasNext()) {
+            String name = iterator.next().name;
+            iterator.remove();
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        evicted.add(names.size());
+        for (String name : names) {
+            submit(() -> delete(name));
+        }
+        return names.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Cached contexts are billed for storage until they expire
+        evictAll();
+        lifecycle.shutdown();
+        try {
+            lifecycle.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        List<Map<String, Object>> active = new ArrayList<>();
+        for (Context context : contexts.values()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("templateId", context.template.getId());
+            row.put("state", context.name != null ? "ready" : context.failedAt > 0 ? "failed" : "creating");
+            row.put("name", context.name);
+            row.put("expiresAt", context.expiresAt);
+            row.put("lastUsed", context.lastUsed);
+            active.add(row);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("minChars", minChars);
+        metrics.put("minUses", minUses);
+        metrics.put("hits", hits.sum());
+        metrics.put("cachedPromptTokens", cachedTokens.sum());
+        metrics.put("created", created.sum());
+        metrics.put("refreshed", refreshed.sum());
+        metrics.put("evicted", evicted.sum());
+        metrics.put("failures", failures.sum());
+        metrics.put("contexts", active);
+        return metrics;
+    }
+
+    private static final class Context {
+        final PromptTemplate template;
+        // Set last on creation; non-null means ready
+        volatile String name;
+        volatile long expiresAt;
+        volatile long lastUsed;
+        volatile long failedAt;
+        volatile boolean refreshing;
+
+        Context(PromptTemplate template) {
+            this.template = template;
+        }
+    }
+}
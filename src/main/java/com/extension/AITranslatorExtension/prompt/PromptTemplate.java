@@ -0,0 +1,107 @@
+package com.extension.AITranslatorExtension.prompt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A frontend instruction compiled into the request wrapper.
+ *
+ * The wrapper is split once into literal segments around the {@code {text}} slot and the
+ * instruction is folded into the leading segment, so rendering a request is one exact-size
+ * concatenation instead of a format-string parse. No per-thread buffer is kept: with virtual
+ * threads every request runs on a fresh thread and a thread-local buffer would never be reused.
+ */
+public final class PromptTemplate {
+
+    static final String PROMPT_SLOT = "{prompt}";
+    static final String TEXT_SLOT = "{text}";
+
+    private final String id;
+    private final String instruction;
+    // wrapper up to {text} with the instruction bound
+    private final String head;
+    // wrapper between the instruction and {text}, for requests whose instruction is cached upstream
+    private final String bodyHead;
+    private final String tail;
+
+    private final LongAdder uses = new LongAdder();
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    private PromptTemplate(String id, String instruction, String head, String bodyHead, String tail) {
+        this.id = id;
+        this.instruction = instruction;
+        this.head = head;
+        this.bodyHead = bodyHead;
+        this.tail = tail;
+    }
+
+    /**
+     * @param wrapper request layout containing {@code {prompt}} followed by {@code {text}}
+     */
+    static PromptTemplate compile(String wrapper, String instruction) {
+        int promptAt = wrapper.indexOf(PROMPT_SLOT);
+        int textAt = wrapper.indexOf(TEXT_SLOT);
+        if (promptAt < 0 || textAt < promptAt) {
+            throw new IllegalArgumentException("Prompt wrapper must contain {prompt} followed by {text}");
+        }
+        String beforePrompt = wrapper.substring(0, promptAt);
+        String between = wrapper.substring(promptAt + PROMPT_SLOT.length(), textAt);
+        String tail = wrapper.substring(textAt + TEXT_SLOT.length());
+
+        return new PromptTemplate(idFor(wrapper, instruction), instruction,
+                beforePrompt + instruction + between, between.stripLeading(), tail);
+    }
+
+    /**
+     * Stable ID: the same wrapper and instruction always map to the same ID, across restarts and nodes
+     */
+    static String idFor(String wrapper, String instruction) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(wrapper.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(instruction.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getInstruction() {
+        return instruction;
+    }
+
+    public long getUses() {
+        return uses.sum();
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    void recordUse() {
+        uses.increment();
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Full request: instruction and text
+     */
+    public String render(String text) {
+        return head + text + tail;
+    }
+
+    /**
+     * Request without the instruction, for use on top of a cached context holding it
+     */
+    public String renderBody(String text) {
+        return bodyHead + text + tail;
+    }
+}
@@ -0,0 +1,110 @@
+package com.extension.AITranslatorExtension.prompt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compiled prompt templates keyed by instruction, bounded by evicting the least recently used
+ */
+@Component
+public class PromptTemplateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptTemplateRegistry.class);
+
+    // Ask the model to respond concisely in a single short paragraph
+    static final String WRAPPER = "{prompt}\n\nText: \"{text}\"\n\nAnswer as ONE short paragraph, concise and to the point. Avoid filler.";
+
+    private final int maxTemplates;
+    private final Map<String, PromptTemplate> templates = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder compiled = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public PromptTemplateRegistry(@Value("${prompt.templates.max-entries:1000}") int maxTemplates) {
+        this.maxTemplates = Math.max(1, maxTemplates);
+    }
+
+    /**
+     * Compiled template for an instruction, compiling it on first use
+     */
+    public PromptTemplate templateFor(String instruction) {
+        PromptTemplate template = templates.get(instruction);
+        if (template == null) {
+            template = templates.computeIfAbsent(instruction, i -> {
+                compiled.increment();
+                return PromptTemplate.compile(WRAPPER, i);
+            });
+            if (templates.size() > maxTemplates) {
+                evictLeastRecentlyUsed();
+            }
+        }
+        template.recordUse();
+        return template;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        // Runs on request threads; one evicting thread is enough, the others carry on
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            while (templates.size() > maxTemplates) {
+                PromptTemplate oldest = null;
+                for (PromptTemplate candidate : templates.values()) {
+                    if (oldest == null || candidate.getLastUsed() < oldest.getLastUsed()) {
+                        oldest = candidate;
+                    }
+                }
+                if (oldest == null || !templates.remove(oldest.getInstruction(), oldest)) {
+                    return;
+                }
+                evicted.increment();
+                logger.debug("Evicted prompt template {}", oldest.getId());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Registry counters and the most used templates
+     */
+    public Map<String, Object> getMetrics(int limit) {
+        List<PromptTemplate> top = new ArrayList<>(templates.values());
+        top.sort(Comparator.comparingLong(PromptTemplate::getUses).reversed());
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (PromptTemplate template : top.subList(0, Math.min(limit, top.size()))) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", template.getId());
+            row.put("instructionChars", template.getInstruction().length());
+            row.put("uses", template.getUses());
+            row.put("lastUsed", template.getLastUsed());
+            rows.add(row);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("templates", templates.size());
+        metrics.put("maxTemplates", maxTemplates);
+        metrics.put("compiled", compiled.sum());
+        metrics.put("evicted", evicted.sum());
+        metrics.put("top", rows);
+        return metrics;
+    }
+}
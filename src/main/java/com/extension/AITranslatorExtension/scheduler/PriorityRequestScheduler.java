@@ -0,0 +1,372 @@
+package com.extension.AITranslatorExtension.scheduler;
+
+import com.extension.AITranslatorExtension.config.VirtualThreads;
+import com.extension.AITranslatorExtension.exception.SchedulerRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission scheduler in front of the Gemini client.
+ *
+ * At most {@code scheduler.max-concurrent} upstream calls run at once. Callers that
+ * cannot start immediately wait in a per-priority queue and are released, on their own
+ * thread, when a running call finishes:
+ * - between priority classes by weighted fair queuing (stride scheduling on class weights)
+ * - within a class round-robin across client IPs, FIFO per IP
+ * - any request that has waited longer than the starvation threshold is served first
+ *
+ * Every waiting caller holds a request thread, so on platform threads running plus queued
+ * requests are kept well below {@code server.tomcat.threads.max}: the total queue is capped
+ * by {@code scheduler.queue.max-depth} and the background class by
+ * {@code scheduler.queue.max-background-depth}, leaving threads free for interactive requests
+ * to reach the scheduler during a background burst.
+ */
+@Component
+public class PriorityRequestScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriorityRequestScheduler.class);
+
+    private static final long STRIDE_SCALE = 1L << 20;
+    // Share of request threads never handed to the scheduler on platform threads
+    private static final int RESERVED_THREADS_DIVISOR = 4;
+
+    private final int maxConcurrent;
+    private final int maxQueueDepth;
+    private final int maxBackgroundDepth;
+    private final long queueTimeoutNanos;
+    private final long starvationThresholdNanos;
+    private final RequestPriority defaultPriority;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<RequestPriority, ClassQueue> queues = new EnumMap<>(RequestPriority.class);
+
+    private int inFlight;
+    private int queuedTotal;
+    private long virtualTime;
+
+    public PriorityRequestScheduler(
+            @Value("${scheduler.max-concurrent:16}") int maxConcurrent,
+            @Value("${scheduler.queue.max-depth:96}") int maxQueueDepth,
+            @Value("${scheduler.queue.max-background-depth:48}") int maxBackgroundDepth,
+            @Value("${scheduler.queue.timeout-ms:15000}") long queueTimeoutMs,
+            @Value("${scheduler.starvation-threshold-ms:3000}") long starvationThresholdMs,
+            @Value("${scheduler.weight.interactive:4}") int interactiveWeight,
+            @Value("${scheduler.weight.background:1}") int backgroundWeight,
+            @Value("${scheduler.default-priority:interactive}") String defaultPriority,
+            @Value("${server.tomcat.threads.max:200}") int requestThreads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        int queueDepth = Math.max(0, maxQueueDepth);
+        if (!(virtualThreads && VirtualThreads.isSupported())) {
+            int threadBudget = requestThreads - requestThreads / RESERVED_THREADS_DIVISOR - this.maxConcurrent;
+            if (queueDepth > threadBudget) {
+                logger.warn("scheduler.queue.max-depth={} with max-concurrent={} would hold most of the {} request threads; capping queue at {}",
+                        queueDepth, this.maxConcurrent, requestThreads, Math.max(0, threadBudget));
+                queueDepth = Math.max(0, threadBudget);
+            }
+        }
+        this.maxQueueDepth = queueDepth;
+        this.maxBackgroundDepth = Math.min(queueDepth, Math.max(0, maxBackgroundDepth));
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        this.starvationThresholdNanos = TimeUnit.MILLISECONDS.toNanos(starvationThresholdMs);
+        this.defaultPriority = RequestPriority.parse(defaultPriority, RequestPriority.INTERACTIVE);
+
+        queues.put(RequestPriority.INTERACTIVE, new ClassQueue(RequestPriority.INTERACTIVE, interactiveWeight));
+        queues.put(RequestPriority.BACKGROUND, new ClassQueue(RequestPriority.BACKGROUND, backgroundWeight));
+
+        logger.info("Request scheduler initialized: maxConcurrent={}, maxQueueDepth={} (background {}), weights interactive={} background={}",
+                this.maxConcurrent, this.maxQueueDepth, this.maxBackgroundDepth, interactiveWeight, backgroundWeight);
+    }
+
+    public RequestPriority getDefaultPriority() {
+        return defaultPriority;
+    }
+
+    /**
+     * Run a task once the scheduler admits it
+     * @param priority priority class of the request
+     * @param clientKey client identifier (IP address) used for per-client fairness
+     * @param task upstream call to run on the calling thread
+     * @return result of the task
+     * @throws SchedulerRejectedException if the queue is full or the wait timed out
+     */
+    public <T> T execute(RequestPriority priority, String clientKey, Callable<T> task) throws Exception {
+        acquire(priority != null ? priority : defaultPriority, clientKey != null ? clientKey : "unknown");
+        try {
+            return task.call();
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire(RequestPriority priority, String clientKey) throws InterruptedException {
+        ClassQueue queue = queues.get(priority);
+        lock.lock();
+        try {
+            if (inFlight < maxConcurrent && queuedTotal == 0) {
+                inFlight++;
+                queue.recordDispatch(0L);
+                return;
+            }
+
+            if (queuedTotal >= maxQueueDepth
+                    || (priority == RequestPriority.BACKGROUND && queue.size >= maxBackgroundDepth)) {
+                queue.rejected.incrementAndGet();
+                logger.warn("Scheduler queue full for priority {} ({} waiting, {} total)", priority, queue.size, queuedTotal);
+                throw new SchedulerRejectedException("Server is busy. Please try again later.");
+            }
+
+            Ticket ticket = new Ticket(clientKey, System.nanoTime(), lock.newCondition());
+            if (queue.size == 0) {
+                // A class returning from idle must not bank credit from the time it was empty
+                queue.pass = Math.max(queue.pass, virtualTime);
+            }
+            queue.add(ticket);
+            queuedTotal++;
+
+            long remaining = queueTimeoutNanos;
+            try {
+                while (!ticket.granted) {
+                    if (remaining <= 0L) {
+                        queue.remove(ticket);
+                        queuedTotal--;
+                        queue.timedOut.incrementAndGet();
+                        logger.warn("Scheduler wait timed out for priority {} client {}", priority, clientKey);
+                        throw new SchedulerRejectedException("Request timed out waiting for capacity. Please try again later.");
+                    }
+                    remaining = ticket.signal.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (ticket.granted) {
+                    // Permit was handed over while we were being interrupted; give it back
+                    inFlight--;
+                    dispatchNext();
+                } else {
+                    queue.remove(ticket);
+                    queuedTotal--;
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            dispatchNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand free permits to waiting tickets. Caller must hold the lock.
+     */
+    private void dispatchNext() {
+        while (inFlight < maxConcurrent && queuedTotal > 0) {
+            long now = System.nanoTime();
+            ClassQueue selected = null;
+
+            // Starvation protection: the longest-waiting ticket past the threshold goes first
+            long oldestArrival = 0L;
+            for (ClassQueue queue : queues.values()) {
+                Ticket oldest = queue.oldest();
+                if (oldest != null && now - oldest.arrivalNanos >= starvationThresholdNanos
+                        && (selected == null || oldest.arrivalNanos - oldestArrival < 0)) {
+                    oldestArrival = oldest.arrivalNanos;
+                    selected = queue;
+                }
+            }
+
+            Ticket ticket;
+            if (selected != null) {
+                ticket = selected.pollOldest();
+                selected.promoted.incrementAndGet();
+            } else {
+                for (ClassQueue queue : queues.values()) {
+                    if (queue.size > 0 && (selected == null || queue.pass < selected.pass)) {
+                        selected = queue;
+                    }
+                }
+                ticket = selected.pollFair();
+            }
+
+            virtualTime = selected.pass;
+            selected.pass += selected.stride;
+
+            ticket.granted = true;
+            inFlight++;
+            queuedTotal--;
+            selected.recordDispatch(now - ticket.arrivalNanos);
+            ticket.signal.signal();
+        }
+    }
+
+    /**
+     * Per-class queue metrics for the admin endpoint
+     */
+    public Map<String, Object> getMetrics() {
+        lock.lock();
+        try {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("maxConcurrent", maxConcurrent);
+            metrics.put("inFlight", inFlight);
+            metrics.put("queued", queuedTotal);
+            metrics.put("maxQueueDepth", maxQueueDepth);
+            metrics.put("maxBackgroundDepth", maxBackgroundDepth);
+
+            Map<String, Object> classes = new LinkedHashMap<>();
+            for (ClassQueue queue : queues.values()) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                long dispatched = queue.dispatched.get();
+                stats.put("weight", queue.weight);
+                stats.put("queueDepth", queue.size);
+                stats.put("waitingClients", queue.activeClients.size());
+                stats.put("dispatched", dispatched);
+                stats.put("rejected", queue.rejected.get());
+                stats.put("timedOut", queue.timedOut.get());
+                stats.put("starvationPromotions", queue.promoted.get());
+                stats.put("avgWaitMs", dispatched > 0
+                        ? TimeUnit.NANOSECONDS.toMillis(queue.totalWaitNanos.get() / dispatched) : 0);
+                stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(queue.maxWaitNanos.get()));
+                classes.put(queue.priority.name().toLowerCase(), stats);
+            }
+            metrics.put("classes", classes);
+            return metrics;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Ticket {
+        final String clientKey;
+        final long arrivalNanos;
+        final Condition signal;
+        boolean granted;
+        boolean cancelled;
+
+        Ticket(String clientKey, long arrivalNanos, Condition signal) {
+            this.clientKey = clientKey;
+            this.arrivalNanos = arrivalNanos;
+            this.signal = signal;
+        }
+    }
+
+    /**
+     * Waiting tickets of one priority class, round-robin across clients.
+     * All mutation happens under the scheduler lock.
+     */
+    private static final class ClassQueue {
+        final RequestPriority priority;
+        final int weight;
+        final long stride;
+
+        final Map<String, ArrayDeque<Ticket>> byClient = new HashMap<>();
+        final ArrayDeque<String> activeClients = new ArrayDeque<>();
+        // Arrival order across all clients; granted/cancelled tickets are purged lazily
+        final ArrayDeque<Ticket> arrivals = new ArrayDeque<>();
+        int size;
+        long pass;
+
+        final AtomicLong dispatched = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong timedOut = new AtomicLong();
+        final AtomicLong promoted = new AtomicLong();
+        final AtomicLong totalWaitNanos = new AtomicLong();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+
+        ClassQueue(RequestPriority priority, int weight) {
+            this.priority = priority;
+            this.weight = Math.max(1, weight);
+            this.stride = STRIDE_SCALE / this.weight;
+        }
+
+        void add(Ticket ticket) {
+            ArrayDeque<Ticket> clientQueue = byClient.get(ticket.clientKey);
+            if (clientQueue == null) {
+                clientQueue = new ArrayDeque<>();
+                byClient.put(ticket.clientKey, clientQueue);
+                activeClients.addLast(ticket.clientKey);
+            }
+            clientQueue.addLast(ticket);
+            arrivals.addLast(ticket);
+            size++;
+        }
+
+        void remove(Ticket ticket) {
+            ticket.cancelled = true;
+            ArrayDeque<Ticket> clientQueue = byClient.get(ticket.clientKey);
+            if (clientQueue != null && clientQueue.remove(ticket)) {
+                size--;
+                if (size == 0) {
+                    arrivals.clear();
+                }
+                if (clientQueue.isEmpty()) {
+                    byClient.remove(ticket.clientKey);
+                    activeClients.remove(ticket.clientKey);
+                }
+            }
+        }
+
+        Ticket pollFair() {
+            String clientKey = activeClients.pollFirst();
+            ArrayDeque<Ticket> clientQueue = byClient.get(clientKey);
+            Ticket ticket = clientQueue.pollFirst();
+            if (clientQueue.isEmpty()) {
+                byClient.remove(clientKey);
+            } else {
+                activeClients.addLast(clientKey);
+            }
+            size--;
+            if (size == 0) {
+                arrivals.clear();
+            }
+            return ticket;
+        }
+
+        Ticket oldest() {
+            Ticket head = arrivals.peekFirst();
+            while (head != null && (head.granted || head.cancelled)) {
+                arrivals.pollFirst();
+                head = arrivals.peekFirst();
+            }
+            return head;
+        }
+
+        Ticket pollOldest() {
+            Ticket ticket = oldest();
+            arrivals.pollFirst();
+            // Per-client queues are FIFO, so the oldest ticket is at the head of its client's queue
+            ArrayDeque<Ticket> clientQueue = byClient.get(ticket.clientKey);
+            clientQueue.pollFirst();
+            if (clientQueue.isEmpty()) {
+                byClient.remove(ticket.clientKey);
+                activeClients.remove(ticket.clientKey);
+            }
+            size--;
+            return ticket;
+        }
+
+        void recordDispatch(long waitNanos) {
+            dispatched.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.extension.AITranslatorExtension.scheduler;
+
+import java.util.Locale;
+
+/**
+ * Priority classes for upstream Gemini calls.
+ * INTERACTIVE covers single selections (hover / popup translation),
+ * BACKGROUND covers bulk page and paragraph translation.
+ */
+public enum RequestPriority {
+    INTERACTIVE,
+    BACKGROUND;
+
+    /**
+     * Parse a priority from a request field or header value, falling back when missing or unknown
+     */
+    public static RequestPriority parse(String value, RequestPriority fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "interactive", "high", "selection" -> INTERACTIVE;
+            case "background", "low", "bulk", "page" -> BACKGROUND;
+            default -> fallback;
+        };
+    }
+}
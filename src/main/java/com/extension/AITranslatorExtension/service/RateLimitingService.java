@@ -1,23 +1,52 @@
 package com.extension.AITranslatorExtension.service;
 
+import com.extension.AITranslatorExtension.accesslog.AccessLog;
+import com.extension.AITranslatorExtension.cluster.ClusterStateBackend;
+import com.extension.AITranslatorExtension.network.ClientAddress;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Refill;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class RateLimitingService {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitingService.class);
 
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, EndpointBucket> endpointBuckets = new ConcurrentHashMap<>();
+    private final Map<String, PrefixState> prefixes = new ConcurrentHashMap<>();
+    // Serializes reloads; a lock rather than a monitor because reloads read the routes file
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private final AtomicLong evictedPrefixes = new AtomicLong();
+    private final AtomicLong cooledPrefixes = new AtomicLong();
+
+    @Autowired
+    private ClusterStateBackend clusterStateBackend;
+
+    // Rejection warnings are deduplicated per key, so a flood from one client costs one line per interval
+    @Autowired
+    private AccessLog accessLog;
 
     @Value("${rate.limit.ip.requests:100}")
     private int ipRequestLimit;
@@ -25,6 +54,15 @@ public class RateLimitingService {
     @Value("${rate.limit.ip.period:60}")
     private int ipPeriodSeconds;
 
+    @Value("${rate.limit.prefix.requests:400}")
+    private int prefixRequestLimit;
+
+    @Value("${rate.limit.prefix.period:60}")
+    private int prefixPeriodSeconds;
+
+    @Value("${rate.limit.prefix.max-tracked-addresses:256}")
+    private int maxTrackedAddresses;
+
     @Value("${rate.limit.endpoint.translate.requests:20}")
     private int translateRequestLimit;
 
@@ -37,36 +75,240 @@ public class RateLimitingService {
     @Value("${rate.limit.endpoint.health.period:60}")
     private int healthPeriodSeconds;
 
+    @Value("${rate.limit.routes:}")
+    private String routesSpec;
+
+    @Value("${rate.limit.routes.file:}")
+    private String routesFile;
+
+    @Value("${rate.limit.routes.default.requests:30}")
+    private int defaultRouteRequestLimit;
+
+    @Value("${rate.limit.routes.default.period:60}")
+    private int defaultRoutePeriodSeconds;
+
+    private volatile RoutePolicyTable routePolicies;
+    private volatile long routesFileModified;
+
+    @PostConstruct
+    void initRoutePolicies() {
+        routePolicies = loadRoutePolicies();
+        logger.info("Loaded {} route rate limit policies", routePolicies.getPolicies().size());
+    }
+
     /**
-     * Try to consume tokens for IP-based rate limiting
-     * @param ipAddress IP address
+     * Try to consume tokens for client-based rate limiting.
+     * Every request is charged to its network prefix (/24 or /48). While the prefix is cold it
+     * has used at most one address's allowance, so no address can be over its own limit and
+     * requests are only counted per address. Once it has used more, each address (/32 or /64)
+     * gets its own bucket, starting from what the address used while the prefix was cold.
+     * @param client resolved client address
      * @return true if request allowed, false if rate limited
      */
-    public boolean tryConsumeForIp(String ipAddress) {
-        String key = "ip:" + ipAddress;
-        Bucket bucket = buckets.computeIfAbsent(key, k -> createIpBucket());
-        boolean allowed = bucket.tryConsume(1);
+    public boolean tryConsumeForIp(ClientAddress client) {
+        PrefixState prefix = prefixes.computeIfAbsent(client.getPrefixKey(), k -> new PrefixState(createPrefixBucket()));
 
-        if (!allowed) {
-            logger.warn("IP rate limit exceeded for: {}", ipAddress);
+        if (!prefix.bucket.tryConsume(1)) {
+            accessLog.warn(logger, "prefix:" + client.getPrefixKey(), "Prefix rate limit exceeded for: {} ({})",
+                    client.getPrefixKey(), client.getAddress());
+            return false;
         }
 
-        return allowed;
+        String identity = client.getLimitKey();
+        if (prefix.hot || !countColdRequest(prefix, client)) {
+            Bucket bucket = prefix.addresses.get(client.getLimitKey());
+            if (bucket == null) {
+                // Past the tracking cap (address rotation inside one prefix) new addresses share one bucket
+                bucket = prefix.addresses.size() < maxTrackedAddresses
+                        ? prefix.addresses.computeIfAbsent(client.getLimitKey(), k -> createIpBucket(0))
+                        : prefix.overflow;
+            }
+            if (bucket == prefix.overflow) {
+                identity = overflowIdentity(client);
+            }
+            if (!bucket.tryConsume(1)) {
+                accessLog.warn(logger, "ip:" + identity, "IP rate limit exceeded for: {}", client.getAddress());
+                return false;
+            }
+        }
+
+        // Local limits passed; enforce the same per-client limit across all nodes
+        if (!clusterStateBackend.tryConsume("ip:" + identity, ipRequestLimit, ipPeriodSeconds)) {
+            accessLog.warn(logger, "cluster:" + client.getLimitKey(), "Cluster-wide IP rate limit exceeded for: {}",
+                    client.getAddress());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Key the client's own limits are kept under: its address (/32 or /64), or, for addresses past
+     * the tracking cap of a busy prefix, the key they share. Endpoint and cluster buckets use it
+     * too, so rotating addresses inside one prefix does not create state per address.
+     */
+    public String getLimitIdentity(ClientAddress client) {
+        PrefixState prefix = prefixes.get(client.getPrefixKey());
+        if (prefix != null && prefix.hot && !prefix.addresses.containsKey(client.getLimitKey())) {
+            return overflowIdentity(client);
+        }
+        return client.getLimitKey();
+    }
+
+    private static String overflowIdentity(ClientAddress client) {
+        return "overflow:" + client.getPrefixKey();
+    }
+
+    /**
+     * Count a request of a cold prefix against its address, or turn the prefix hot when it has
+     * used more than one address's allowance or seen as many addresses as it may track
+     * @return true if the request was counted, false if the prefix is hot and the request still
+     *         has to be charged to its address bucket
+     */
+    private boolean countColdRequest(PrefixState prefix, ClientAddress client) {
+        long now = System.nanoTime();
+        long periodNanos = TimeUnit.SECONDS.toNanos(ipPeriodSeconds);
+        prefix.lock.lock();
+        try {
+            if (prefix.hot) {
+                return false;
+            }
+            ColdUse use = prefix.coldUse.get(client.getLimitKey());
+            boolean busy = prefix.bucket.getAvailableTokens() < hotThreshold()
+                    || (use == null && prefix.coldUse.size() >= maxTrackedAddresses);
+            if (!busy) {
+                if (use == null) {
+                    use = new ColdUse(now);
+                    prefix.coldUse.put(client.getLimitKey(), use);
+                }
+                use.add(now, periodNanos);
+                return true;
+            }
+
+            // Addresses start from what they used while cold, so none gets its allowance twice
+            long untracked = 0;
+            for (Map.Entry<String, ColdUse> entry : prefix.coldUse.entrySet()) {
+                long used = entry.getValue().current(now, periodNanos);
+                if (used == 0) {
+                    continue;
+                }
+                if (prefix.addresses.size() < maxTrackedAddresses) {
+                    prefix.addresses.put(entry.getKey(), createIpBucket(used));
+                } else {
+                    untracked += used;
+                }
+            }
+            prefix.coldUse.clear();
+            prefix.overflow = createIpBucket(untracked);
+            prefix.hotSince = now;
+            prefix.hot = true;
+            logger.info("Prefix {} is busy, tracking individual addresses", client.getPrefixKey());
+            return false;
+        } finally {
+            prefix.lock.unlock();
+        }
+    }
+
+    /**
+     * Prefix tokens below which a single address may have used its whole allowance
+     */
+    private long hotThreshold() {
+        return (long) prefixRequestLimit - ipRequestLimit;
+    }
+
+    /**
+     * Drop limiter state that carries no information any more. A prefix whose bucket has refilled
+     * completely is idle and is removed; a hot prefix that has used less than one address's
+     * allowance since a full refill period goes back to counting per address; idle address
+     * buckets are released so they do not hold tracking slots, and endpoint buckets that have
+     * refilled completely are dropped.
+     */
+    @Scheduled(fixedDelayString = "${rate.limit.prefix.sweep-interval-ms:60000}")
+    public void sweepPrefixes() {
+        sweepPrefixes(System.nanoTime());
+    }
+
+    void sweepPrefixes(long now) {
+        long coolDownNanos = TimeUnit.SECONDS.toNanos(Math.max(prefixPeriodSeconds, ipPeriodSeconds));
+        long periodNanos = TimeUnit.SECONDS.toNanos(ipPeriodSeconds);
+        for (String key : prefixes.keySet()) {
+            prefixes.computeIfPresent(key, (k, prefix) -> {
+                prefix.lock.lock();
+                try {
+                    prefix.coldUse.values().removeIf(use -> use.current(now, periodNanos) == 0);
+                    long available = prefix.bucket.getAvailableTokens();
+                    if (available >= prefixRequestLimit && !prefix.hot && prefix.coldUse.isEmpty()) {
+                        evictedPrefixes.incrementAndGet();
+                        return null;
+                    }
+                    if (prefix.hot && now - prefix.hotSince >= coolDownNanos && available >= hotThreshold()) {
+                        // Addresses keep what they used of their allowance
+                        for (Map.Entry<String, Bucket> address : prefix.addresses.entrySet()) {
+                            long used = ipRequestLimit - address.getValue().getAvailableTokens();
+                            if (used > 0) {
+                                prefix.coldUse.put(address.getKey(), new ColdUse(now, used));
+                            }
+                        }
+                        prefix.hot = false;
+                        prefix.addresses.clear();
+                        cooledPrefixes.incrementAndGet();
+                    } else if (prefix.hot) {
+                        prefix.addresses.values().removeIf(bucket -> bucket.getAvailableTokens() >= ipRequestLimit);
+                    }
+                    return prefix;
+                } finally {
+                    prefix.lock.unlock();
+                }
+            });
+        }
+        // A full bucket is exactly what a new one would be, so dropping it loses nothing
+        for (String key : endpointBuckets.keySet()) {
+            endpointBuckets.computeIfPresent(key, (k, entry) -> entry.isFull() ? null : entry);
+        }
+    }
+
+    /**
+     * Prefix limiter state for the admin endpoint
+     */
+    public Map<String, Object> getPrefixMetrics() {
+        int hot = 0;
+        int addresses = 0;
+        for (PrefixState prefix : prefixes.values()) {
+            if (prefix.hot) {
+                hot++;
+            }
+            addresses += prefix.addresses.size();
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("trackedPrefixes", prefixes.size());
+        metrics.put("hotPrefixes", hot);
+        metrics.put("trackedAddresses", addresses);
+        metrics.put("endpointBuckets", endpointBuckets.size());
+        metrics.put("evictedPrefixes", evictedPrefixes.get());
+        metrics.put("cooledPrefixes", cooledPrefixes.get());
+        return metrics;
     }
 
     /**
      * Try to consume tokens for endpoint-specific rate limiting
-     * @param endpoint API endpoint
-     * @param identifier IP address or user identifier
+     * @param endpoint API endpoint (raw request path)
+     * @param identifier client identity from {@link #getLimitIdentity(ClientAddress)}
      * @return true if request allowed, false if rate limited
      */
     public boolean tryConsumeForEndpoint(String endpoint, String identifier) {
-        String key = "endpoint:" + endpoint + ":" + identifier;
-        Bucket bucket = buckets.computeIfAbsent(key, k -> createEndpointBucket(endpoint));
-        boolean allowed = bucket.tryConsume(1);
+        RoutePolicy policy = routePolicies.lookup(endpoint);
+        String key = "endpoint:" + policy.getRoute() + ":" + identifier;
+        boolean[] consumed = new boolean[1];
+        // Under the map's lock, so the sweep cannot drop a bucket while a token is taken from it
+        endpointBuckets.compute(key, (k, entry) -> {
+            EndpointBucket current = entry != null ? entry : createEndpointBucket(policy);
+            consumed[0] = current.bucketFor(policy).tryConsume(1);
+            return current;
+        });
+        boolean allowed = consumed[0]
+                && clusterStateBackend.tryConsume(key, policy.getRequests(), policy.getPeriodSeconds());
 
         if (!allowed) {
-            logger.warn("Endpoint rate limit exceeded for {} on endpoint {}", identifier, endpoint);
+            accessLog.warn(logger, key, "Endpoint rate limit exceeded for {} on endpoint {}", identifier, policy.getRoute());
         }
 
         return allowed;
@@ -74,59 +316,242 @@ public class RateLimitingService {
 
     /**
      * Create bucket for IP-based rate limiting
+     * @param used requests already made in the current period
      */
-    private Bucket createIpBucket() {
+    private Bucket createIpBucket(long used) {
         logger.debug("Creating IP bucket with limit: {} requests per {} seconds", ipRequestLimit, ipPeriodSeconds);
-        return Bucket.builder()
+        Bucket bucket = Bucket.builder()
                 .addLimit(Bandwidth.classic(ipRequestLimit,
                         Refill.intervally(ipRequestLimit, Duration.ofSeconds(ipPeriodSeconds))))
                 .build();
+        if (used > 0) {
+            bucket.tryConsumeAsMuchAsPossible(Math.min(used, ipRequestLimit));
+        }
+        return bucket;
+    }
+
+    /**
+     * Create bucket shared by all addresses in a network prefix
+     */
+    private Bucket createPrefixBucket() {
+        logger.debug("Creating prefix bucket with limit: {} requests per {} seconds", prefixRequestLimit, prefixPeriodSeconds);
+        return Bucket.builder()
+                .addLimit(Bandwidth.classic(prefixRequestLimit,
+                        Refill.intervally(prefixRequestLimit, Duration.ofSeconds(prefixPeriodSeconds))))
+                .build();
     }
 
     /**
      * Create bucket for endpoint-specific rate limiting
      */
-    private Bucket createEndpointBucket(String endpoint) {
-        return switch (endpoint) {
-            case "/api/generate" -> {
-                logger.debug("Creating endpoint bucket for /api/generate with limit: {} requests per {} seconds",
-                        translateRequestLimit, translatePeriodSeconds);
-                yield Bucket.builder()
-                        .addLimit(Bandwidth.classic(translateRequestLimit,
-                                Refill.intervally(translateRequestLimit, Duration.ofSeconds(translatePeriodSeconds))))
-                        .build();
+    private EndpointBucket createEndpointBucket(RoutePolicy policy) {
+        logger.debug("Creating endpoint bucket for {} with limit: {} requests per {} seconds",
+                policy.getRoute(), policy.getRequests(), policy.getPeriodSeconds());
+        return new EndpointBucket(Bucket.builder()
+                .addLimit(Bandwidth.classic(policy.getRequests(),
+                        Refill.intervally(policy.getRequests(), Duration.ofSeconds(policy.getPeriodSeconds()))))
+                .build(), policy);
+    }
+
+    /**
+     * Build the route table: legacy per-endpoint properties first, then rate.limit.routes,
+     * then the optional routes file, later entries overriding earlier ones
+     */
+    private RoutePolicyTable loadRoutePolicies() {
+        StringBuilder spec = new StringBuilder()
+                .append("/api/generate=").append(translateRequestLimit).append('/').append(translatePeriodSeconds).append('\n')
+                .append("/api/health=").append(healthRequestLimit).append('/').append(healthPeriodSeconds).append('\n')
+                .append(routesSpec).append('\n');
+
+        long modified = 0L;
+        if (!routesFile.isBlank()) {
+            Path path = Path.of(routesFile);
+            try {
+                // Read before the content, so a write during the read is picked up by the next check
+                modified = Files.getLastModifiedTime(path).toMillis();
+                spec.append(Files.readString(path));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read route policy file " + routesFile, e);
             }
-            case "/api/health" -> {
-                logger.debug("Creating endpoint bucket for /api/health with limit: {} requests per {} seconds",
-                        healthRequestLimit, healthPeriodSeconds);
-                yield Bucket.builder()
-                        .addLimit(Bandwidth.classic(healthRequestLimit,
-                                Refill.intervally(healthRequestLimit, Duration.ofSeconds(healthPeriodSeconds))))
-                        .build();
+        }
+
+        RoutePolicy defaultPolicy = new RoutePolicy(RoutePolicyTable.UNMATCHED_ROUTE,
+                defaultRouteRequestLimit, defaultRoutePeriodSeconds);
+        RoutePolicyTable table = RoutePolicyTable.compile(spec.toString(), defaultPolicy);
+        // Only a version that compiled counts as loaded; a broken edit is retried on the next check
+        routesFileModified = modified;
+        return table;
+    }
+
+    /**
+     * Recompile the route table. Buckets of routes that still exist are kept and pick up changed
+     * limits on their next use, carrying over their remaining tokens proportionally; buckets of
+     * removed routes are dropped.
+     * @throws IllegalArgumentException if the new configuration is invalid; the old table stays active
+     */
+    public RoutePolicyTable reloadRoutePolicies() {
+        reloadLock.lock();
+        try {
+            RoutePolicyTable table = loadRoutePolicies();
+            routePolicies = table;
+
+            Set<String> routes = new HashSet<>();
+            routes.add(table.getDefaultPolicy().getRoute());
+            for (RoutePolicy policy : table.getPolicies()) {
+                routes.add(policy.getRoute());
             }
-            default -> {
-                logger.debug("Creating default endpoint bucket with limit: 30 requests per 60 seconds");
-                yield Bucket.builder()
-                        .addLimit(Bandwidth.classic(30, Refill.intervally(30, Duration.ofMinutes(1))))
-                        .build();
+            int before = endpointBuckets.size();
+            endpointBuckets.values().removeIf(entry -> !routes.contains(entry.policy.getRoute()));
+            logger.info("Reloaded {} route rate limit policies, dropped {} buckets of removed routes",
+                    table.getPolicies().size(), before - endpointBuckets.size());
+            return table;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Reload the routes file when it changes on disk
+     */
+    @Scheduled(fixedDelayString = "${rate.limit.routes.reload-interval-ms:30000}")
+    public void reloadRoutePoliciesIfChanged() {
+        if (routesFile.isBlank()) {
+            return;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(Path.of(routesFile)).toMillis();
+            if (modified != routesFileModified) {
+                reloadRoutePolicies();
             }
-        };
+        } catch (IOException | RuntimeException e) {
+            logger.error("Route policy reload failed, keeping current policies: {}", e.getMessage());
+        }
+    }
+
+    public RoutePolicyTable getRoutePolicies() {
+        return routePolicies;
+    }
+
+    /**
+     * Get remaining client tokens: the address bucket if one is tracked, otherwise the prefix
+     * allowance capped at the per-address limit
+     */
+    public long getRemainingTokens(ClientAddress client) {
+        PrefixState prefix = prefixes.get(client.getPrefixKey());
+        if (prefix == null) {
+            return ipRequestLimit;
+        }
+        long prefixRemaining = prefix.bucket.getAvailableTokens();
+        Bucket bucket = prefix.addresses.get(client.getLimitKey());
+        if (bucket == null && prefix.hot) {
+            bucket = prefix.overflow;
+        }
+        long addressRemaining;
+        if (bucket != null) {
+            addressRemaining = bucket.getAvailableTokens();
+        } else {
+            ColdUse use = prefix.coldUse.get(client.getLimitKey());
+            addressRemaining = ipRequestLimit - (use != null ? use.current(System.nanoTime(),
+                    TimeUnit.SECONDS.toNanos(ipPeriodSeconds)) : 0);
+        }
+        return Math.min(prefixRemaining, addressRemaining);
     }
 
     /**
-     * Get remaining tokens for a bucket
+     * Get remaining tokens in the endpoint bucket serving a request path
      */
-    public long getRemainingTokens(String key) {
-        Bucket bucket = buckets.get(key);
-        return bucket != null ? bucket.getAvailableTokens() : 0;
+    public long getRemainingEndpointTokens(String endpoint, String identifier) {
+        RoutePolicy policy = routePolicies.lookup(endpoint);
+        EndpointBucket entry = endpointBuckets.get("endpoint:" + policy.getRoute() + ":" + identifier);
+        return entry != null ? entry.bucketFor(policy).getAvailableTokens() : policy.getRequests();
     }
 
     /**
      * Clear expired buckets (optional cleanup method)
      */
     public void cleanup() {
-        int size = buckets.size();
-        buckets.clear();
+        int size = endpointBuckets.size() + prefixes.size();
+        endpointBuckets.clear();
+        prefixes.clear();
+        clusterStateBackend.clear();
         logger.info("Cleared {} rate limiting buckets", size);
     }
+
+    /**
+     * Endpoint bucket together with the policy it was last configured from
+     */
+    private static final class EndpointBucket {
+        final Bucket bucket;
+        volatile RoutePolicy policy;
+
+        EndpointBucket(Bucket bucket, RoutePolicy policy) {
+            this.bucket = bucket;
+            this.policy = policy;
+        }
+
+        boolean isFull() {
+            return bucket.getAvailableTokens() >= policy.getRequests();
+        }
+
+        Bucket bucketFor(RoutePolicy current) {
+            RoutePolicy configured = policy;
+            if (configured != current) {
+                if (!current.sameLimits(configured)) {
+                    bucket.replaceConfiguration(current.getBucketConfiguration(), TokensInheritanceStrategy.PROPORTIONALLY);
+                }
+                policy = current;
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * Limiter state for one network prefix
+     */
+    private static final class PrefixState {
+        final Bucket bucket;
+        final Map<String, Bucket> addresses = new ConcurrentHashMap<>();
+        // Requests per address while cold; changed only under the lock
+        final Map<String, ColdUse> coldUse = new ConcurrentHashMap<>();
+        // Serializes cold counting with the switch to hot and the sweep
+        final ReentrantLock lock = new ReentrantLock();
+        // Shared by addresses beyond the tracking cap; set before hot
+        volatile Bucket overflow;
+        volatile long hotSince;
+        // Addresses keep their own buckets until the sweep finds the prefix quiet again
+        volatile boolean hot;
+
+        PrefixState(Bucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * Requests of one address in the current period of a cold prefix
+     */
+    private static final class ColdUse {
+        private volatile long since;
+        private volatile long count;
+
+        ColdUse(long now) {
+            this(now, 0);
+        }
+
+        ColdUse(long now, long count) {
+            this.since = now;
+            this.count = count;
+        }
+
+        void add(long now, long periodNanos) {
+            if (now - since >= periodNanos) {
+                since = now;
+                count = 0;
+            }
+            count++;
+        }
+
+        long current(long now, long periodNanos) {
+            return now - since < periodNanos ? count : 0;
+        }
+    }
 }
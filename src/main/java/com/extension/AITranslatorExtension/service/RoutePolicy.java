@@ -0,0 +1,55 @@
+package com.extension.AITranslatorExtension.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+
+/**
+ * Rate limit policy for one route template, e.g. "/api/generate" -> 20 requests per 60 seconds
+ */
+public final class RoutePolicy {
+
+    private final String route;
+    private final int requests;
+    private final int periodSeconds;
+    private final BucketConfiguration bucketConfiguration;
+
+    public RoutePolicy(String route, int requests, int periodSeconds) {
+        if (requests <= 0 || periodSeconds <= 0) {
+            throw new IllegalArgumentException("Invalid rate limit for route " + route + ": " + requests + "/" + periodSeconds);
+        }
+        this.route = route;
+        this.requests = requests;
+        this.periodSeconds = periodSeconds;
+        this.bucketConfiguration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(requests, Refill.intervally(requests, Duration.ofSeconds(periodSeconds))))
+                .build();
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public int getPeriodSeconds() {
+        return periodSeconds;
+    }
+
+    public BucketConfiguration getBucketConfiguration() {
+        return bucketConfiguration;
+    }
+
+    boolean sameLimits(RoutePolicy other) {
+        return other != null && requests == other.requests && periodSeconds == other.periodSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return route + "=" + requests + "/" + periodSeconds;
+    }
+}
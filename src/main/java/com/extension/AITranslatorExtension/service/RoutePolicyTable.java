@@ -0,0 +1,220 @@
+package com.extension.AITranslatorExtension.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, precompiled lookup table from request paths to rate limit policies.
+ *
+ * Route templates are written as "pattern=requests/periodSeconds", comma or newline separated:
+ * {@code /api/generate=20/60, /api/users/{id}=30/60, /api/admin/**=10/60}.
+ * Literal templates resolve through a hash map; templates with "{var}", "*" or a trailing "**"
+ * are compiled into a segment trie. Paths matching nothing map to the shared default policy.
+ *
+ * Precedence: a literal template beats one with variables, a literal segment beats "{var}" or
+ * "*" at the same position, a full template match beats a "**" catch-all, and of several
+ * catch-alls the longest prefix wins.
+ */
+public final class RoutePolicyTable {
+
+    public static final String UNMATCHED_ROUTE = "unmatched";
+
+    private final Map<String, RoutePolicy> exact;
+    private final Node root;
+    private final RoutePolicy defaultPolicy;
+    private final List<RoutePolicy> policies;
+
+    private RoutePolicyTable(Map<String, RoutePolicy> exact, Node root, RoutePolicy defaultPolicy, List<RoutePolicy> policies) {
+        this.exact = exact;
+        this.root = root;
+        this.defaultPolicy = defaultPolicy;
+        this.policies = policies;
+    }
+
+    /**
+     * Compile a policy specification
+     * @throws IllegalArgumentException if any entry is malformed
+     */
+    public static RoutePolicyTable compile(String spec, RoutePolicy defaultPolicy) {
+        // Later entries for the same route override earlier ones
+        Map<String, RoutePolicy> byRoute = new LinkedHashMap<>();
+        for (String entry : spec.split("[,\\n]")) {
+            String line = entry.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int eq = line.lastIndexOf('=');
+            int slash = line.lastIndexOf('/');
+            if (eq <= 0 || slash < eq) {
+                throw new IllegalArgumentException("Invalid route policy '" + line + "', expected pattern=requests/period");
+            }
+            String route = normalize(line.substring(0, eq).trim());
+            RoutePolicy policy;
+            try {
+                policy = new RoutePolicy(route,
+                        Integer.parseInt(line.substring(eq + 1, slash).trim()),
+                        Integer.parseInt(line.substring(slash + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid route policy '" + line + "', expected pattern=requests/period");
+            }
+            byRoute.put(route, policy);
+        }
+
+        Map<String, RoutePolicy> exact = new HashMap<>();
+        Node root = new Node();
+        List<RoutePolicy> policies = new ArrayList<>(byRoute.values());
+        for (RoutePolicy policy : policies) {
+            if (isLiteral(policy.getRoute())) {
+                exact.put(policy.getRoute(), policy);
+            } else {
+                insert(root, policy.getRoute(), policy);
+            }
+        }
+
+        return new RoutePolicyTable(exact, root, defaultPolicy, Collections.unmodifiableList(policies));
+    }
+
+    /**
+     * Find the policy for a request path; never returns null
+     */
+    public RoutePolicy lookup(String path) {
+        String normalized = normalize(path);
+        RoutePolicy policy = exact.get(normalized);
+        if (policy != null) {
+            return policy;
+        }
+        // The root path has no segments to walk
+        int start = normalized.length() > 1 ? 1 : 2;
+        policy = match(root, normalized, start);
+        if (policy != null) {
+            return policy;
+        }
+        policy = matchCatchAll(root, normalized, start);
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    /**
+     * Full template match for the path from {@code start}, literal segments tried before variables
+     */
+    private static RoutePolicy match(Node node, String path, int start) {
+        if (start > path.length()) {
+            return node.policy;
+        }
+        int end = segmentEnd(path, start);
+        String segment = path.substring(start, end);
+        Node literal = node.children.get(segment);
+        if (literal != null) {
+            RoutePolicy policy = match(literal, path, end + 1);
+            if (policy != null) {
+                return policy;
+            }
+        }
+        return node.wildcard != null ? match(node.wildcard, path, end + 1) : null;
+    }
+
+    /**
+     * Catch-all with the longest matching prefix, or null
+     */
+    private static RoutePolicy matchCatchAll(Node node, String path, int start) {
+        if (start <= path.length()) {
+            int end = segmentEnd(path, start);
+            String segment = path.substring(start, end);
+            Node literal = node.children.get(segment);
+            RoutePolicy deeper = literal != null ? matchCatchAll(literal, path, end + 1) : null;
+            if (deeper == null && node.wildcard != null) {
+                deeper = matchCatchAll(node.wildcard, path, end + 1);
+            }
+            if (deeper != null) {
+                return deeper;
+            }
+        }
+        return node.catchAll;
+    }
+
+    private static int segmentEnd(String path, int start) {
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.length() : end;
+    }
+
+    public RoutePolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    public List<RoutePolicy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * Canonical path form: single slashes, no trailing slash, no path parameters or query,
+     * "." and ".." segments resolved
+     */
+    public static String normalize(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        int cut = path.length();
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == ';' || c == '?' || c == '#') {
+                cut = i;
+                break;
+            }
+        }
+
+        StringBuilder builder = new StringBuilder(cut + 1);
+        int start = 0;
+        while (start <= cut) {
+            int end = path.indexOf('/', start);
+            if (end < 0 || end > cut) {
+                end = cut;
+            }
+            int length = end - start;
+            if (length == 2 && path.charAt(start) == '.' && path.charAt(start + 1) == '.') {
+                builder.setLength(Math.max(0, builder.lastIndexOf("/")));
+            } else if (length > 0 && !(length == 1 && path.charAt(start) == '.')) {
+                builder.append('/').append(path, start, end);
+            }
+            start = end + 1;
+        }
+        return builder.length() == 0 ? "/" : builder.toString();
+    }
+
+    private static boolean isLiteral(String route) {
+        return route.indexOf('*') < 0 && route.indexOf('{') < 0;
+    }
+
+    private static void insert(Node root, String route, RoutePolicy policy) {
+        Node node = root;
+        String[] segments = route.substring(1).split("/");
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.equals("**")) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' is only supported at the end of route " + route);
+                }
+                node.catchAll = policy;
+                return;
+            }
+            if (segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}"))) {
+                if (node.wildcard == null) {
+                    node.wildcard = new Node();
+                }
+                node = node.wildcard;
+            } else {
+                node = node.children.computeIfAbsent(segment, k -> new Node());
+            }
+        }
+        node.policy = policy;
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Node wildcard;
+        RoutePolicy policy;
+        RoutePolicy catchAll;
+    }
+}
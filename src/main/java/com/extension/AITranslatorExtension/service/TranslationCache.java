@@ -0,0 +1,270 @@
+package com.extension.AITranslatorExtension.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU cache of translation results, keyed by a digest of prompt and text.
+ * Entries count their hits so the hottest ones can be snapshotted for warm-up.
+ */
+@Component
+public class TranslationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranslationCache.class);
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TranslationCache(
+            @Value("${cache.translation.enabled:true}") boolean enabled,
+            @Value("${cache.translation.max-entries:10000}") int maxEntries,
+            @Value("${cache.translation.ttl-seconds:86400}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        logger.info("Translation cache {} (max {} entries, ttl {} s)", enabled ? "enabled" : "disabled", maxEntries, ttlSeconds);
+    }
+
+    /**
+     * Stable cache key for a prompt/text pair
+     */
+    public static String keyFor(String prompt, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * @return cached result, or null on miss or expiry
+     */
+    public String get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            entry.hits++;
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String key, String value) {
+        put(key, value, null, null);
+    }
+
+    /**
+     * Cache a result together with the request that produced it, so warm-up can re-fetch it
+     */
+    public void put(String key, String value, String prompt, String text) {
+        if (!enabled || value == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            entries.put(key, new Entry(value, System.currentTimeMillis(), prompt, text, 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-insert a snapshotted entry with its original age and hit count; live entries win
+     */
+    public void restore(HotEntry hot) {
+        if (!enabled || hot.getResult() == null || System.currentTimeMillis() - hot.getCreatedAt() > ttlMillis) {
+            return;
+        }
+        lock.lock();
+        try {
+            entries.putIfAbsent(hot.getKey(), new Entry(hot.getResult(), hot.getCreatedAt(),
+                    hot.getPrompt(), hot.getText(), (int) Math.min(Integer.MAX_VALUE, hot.getFrequency())));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Carry a snapshotted hit count over to an entry that was re-fetched during warm-up
+     */
+    public void seedHits(String key, long frequency) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.hits = (int) Math.max(entry.hits, Math.min(Integer.MAX_VALUE, frequency));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The most frequently hit live entries, hottest first. Hit counts are halved afterwards
+     * (rounding up), so successive snapshots follow recent traffic rather than all-time totals.
+     */
+    public List<HotEntry> hottest(int limit) {
+        List<HotEntry> hot = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.hits > 0 && now - entry.createdAt <= ttlMillis) {
+                    hot.add(new HotEntry(e.getKey(), entry.hits, entry.createdAt, entry.prompt, entry.text, entry.value));
+                }
+                // Entries hit at least once stay eligible until evicted
+                entry.hits = (entry.hits + 1) >>> 1;
+            }
+        } finally {
+            lock.unlock();
+        }
+        hot.sort(Comparator.comparingLong(HotEntry::getFrequency).reversed());
+        return hot.size() > limit ? new ArrayList<>(hot.subList(0, limit)) : hot;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static final class Entry {
+        final String value;
+        final long createdAt;
+        // Request that produced the value; null for entries received from peers
+        final String prompt;
+        final String text;
+        // Guarded by the cache lock
+        int hits;
+
+        Entry(String value, long createdAt, String prompt, String text, int hits) {
+            this.value = value;
+            this.createdAt = createdAt;
+            this.prompt = prompt;
+            this.text = text;
+            this.hits = hits;
+        }
+    }
+
+    /**
+     * A cache entry with its recent hit count, as snapshotted for warm-up
+     */
+    public static final class HotEntry {
+        private final String key;
+        private final long frequency;
+        private final long createdAt;
+        private final String prompt;
+        private final String text;
+        private final String result;
+
+        public HotEntry(String key, long frequency, long createdAt, String prompt, String text, String result) {
+            this.key = key;
+            this.frequency = frequency;
+            this.createdAt = createdAt;
+            this.prompt = prompt;
+            this.text = text;
+            this.result = result;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getFrequency() {
+            return frequency;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * @return prompt of the original request, or null if unknown
+         */
+        public String getPrompt() {
+            return prompt;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return cached result, or null if results are not persisted
+         */
+        public String getResult() {
+            return result;
+        }
+    }
+}
@@ -1,58 +1,173 @@
 package com.extension.AITranslatorExtension.service;
 
+import com.extension.AITranslatorExtension.accesslog.AccessLogEntry;
+import com.extension.AITranslatorExtension.accesslog.AccessLogEntry.Outcome;
 import com.extension.AITranslatorExtension.client.GeminiClient;
+import com.extension.AITranslatorExtension.cluster.ClusterStateBackend;
 import com.extension.AITranslatorExtension.dto.TranslateRequest;
 import com.extension.AITranslatorExtension.dto.TranslateResponse;
+import com.extension.AITranslatorExtension.exception.SchedulerRejectedException;
+import com.extension.AITranslatorExtension.preflight.PreflightClassifier;
+import com.extension.AITranslatorExtension.prompt.PromptContextCache;
+import com.extension.AITranslatorExtension.prompt.PromptTemplate;
+import com.extension.AITranslatorExtension.prompt.PromptTemplateRegistry;
+import com.extension.AITranslatorExtension.scheduler.PriorityRequestScheduler;
+import com.extension.AITranslatorExtension.scheduler.RequestPriority;
+import com.extension.AITranslatorExtension.usage.UsageLedger;
+import com.google.genai.types.GenerateContentResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+
 @Service
 public class TranslationService {
 
     private static final Logger logger = LoggerFactory.getLogger(TranslationService.class);
 
     private final GeminiClient geminiClient;
+    private final PriorityRequestScheduler scheduler;
+    private final TranslationCache translationCache;
+    private final ClusterStateBackend clusterStateBackend;
+    private final PreflightClassifier preflightClassifier;
+    private final UsageLedger usageLedger;
+    private final PromptTemplateRegistry promptTemplates;
+    private final PromptContextCache promptContextCache;
 
     @Value("${gemini.api.key}")
     private String apiKey;
 
-    public TranslationService(GeminiClient geminiClient) {
+    public TranslationService(GeminiClient geminiClient, PriorityRequestScheduler scheduler,
+                              TranslationCache translationCache, ClusterStateBackend clusterStateBackend,
+                              PreflightClassifier preflightClassifier, UsageLedger usageLedger,
+                              PromptTemplateRegistry promptTemplates, PromptContextCache promptContextCache) {
         this.geminiClient = geminiClient;
+        this.scheduler = scheduler;
+        this.translationCache = translationCache;
+        this.clusterStateBackend = clusterStateBackend;
+        this.preflightClassifier = preflightClassifier;
+        this.usageLedger = usageLedger;
+        this.promptTemplates = promptTemplates;
+        this.promptContextCache = promptContextCache;
     }
 
     public TranslateResponse translate(TranslateRequest request) {
+        return translate(request, null);
+    }
+
+    /**
+     * Translate on behalf of a client; the upstream call is admitted by the priority scheduler
+     * @param request translation request, optionally carrying a priority class
+     * @param clientIp client IP used for per-client fairness within a priority class and usage accounting
+     */
+    public TranslateResponse translate(TranslateRequest request, String clientIp) {
+        // Details for the access log record; nothing is logged per request here
+        AccessLogEntry entry = AccessLogEntry.current();
         try {
             if (request.getText() == null || request.getText().trim().isEmpty()) {
-                logger.warn("Translation request received with empty text");
+                entry.fail(Outcome.INVALID, "Text cannot be empty");
                 return TranslateResponse.error("Text cannot be empty");
             }
 
             if (request.getPrompt() == null || request.getPrompt().trim().isEmpty()) {
-                logger.warn("Translation request received with empty prompt");
+                entry.fail(Outcome.INVALID, "Prompt cannot be empty");
                 return TranslateResponse.error("Prompt cannot be empty");
             }
 
-            logger.debug("Processing translation request with prompt: {}",
-                    request.getPrompt().substring(0, Math.min(50, request.getPrompt().length())));
+            long inputChars = request.getPrompt().length() + request.getText().length();
+
+            // Text that a translation would return unchanged never reaches the model
+            if (preflightClassifier.classify(request.getPrompt(), request.getText()) != null) {
+                usageLedger.record(clientIp, inputChars, request.getText().length(), 0, 0);
+                entry.setOutcome(Outcome.PREFLIGHT);
+                entry.setCache("preflight");
+                entry.setSizes(inputChars, request.getText().length());
+                return TranslateResponse.success(request.getText(), false);
+            }
+
+            String cacheKey = null;
+            if (translationCache.isEnabled()) {
+                cacheKey = TranslationCache.keyFor(request.getPrompt(), request.getText());
+                String cached = translationCache.get(cacheKey);
+                String cache = "hit";
+                if (cached == null) {
+                    cached = clusterStateBackend.lookupTranslation(cacheKey);
+                    cache = "peer";
+                    if (cached != null) {
+                        translationCache.put(cacheKey, cached);
+                    }
+                }
+                if (cached != null) {
+                    usageLedger.record(clientIp, inputChars, cached.length(), 0, 0);
+                    entry.setOutcome(Outcome.CACHED);
+                    entry.setCache(cache);
+                    entry.setSizes(inputChars, cached.length());
+                    return TranslateResponse.success(cached, true);
+                }
+                entry.setCache("miss");
+            }
 
-            // Build a prompt that asks the model to respond concisely in a single short paragraph
-            String fullPrompt = String.format(
-                "%s\n\nText: \"%s\"\n\nAnswer as ONE short paragraph, concise and to the point. Avoid filler.",
-                request.getPrompt(),
-                request.getText()
-            );
+            PromptTemplate template = promptTemplates.templateFor(request.getPrompt());
+            String cachedContext = promptContextCache.contextFor(template);
 
-            // Sử dụng API key từ application.properties
-            String result = geminiClient.sendRequest(apiKey, fullPrompt);
+            RequestPriority priority = RequestPriority.parse(request.getPriority(), scheduler.getDefaultPriority());
+            entry.setPriority(priority.name().toLowerCase(Locale.ROOT));
+            entry.setCachedContext(cachedContext != null);
 
-            logger.info("Translation completed successfully");
-            return TranslateResponse.success(result, false); // fromCache always false now
+            long enqueuedAt = System.nanoTime();
+            GenerateContentResponse response = scheduler.execute(priority, clientIp, () -> {
+                long startedAt = System.nanoTime();
+                entry.setQueueNanos(startedAt - enqueuedAt);
+                try {
+                    return generate(template, cachedContext, request.getText());
+                } finally {
+                    entry.setUpstreamNanos(System.nanoTime() - startedAt);
+                }
+            });
+            String result = response.text();
+            usageLedger.record(clientIp, inputChars, result.length(),
+                    response.promptTokenCount(), response.candidatesTokenCount());
+            entry.setSizes(inputChars, result.length());
+            entry.setTokens(response.promptTokenCount(), response.candidatesTokenCount());
 
+            if (cacheKey != null) {
+                translationCache.put(cacheKey, result, template.getInstruction(), request.getText());
+                clusterStateBackend.publishTranslation(cacheKey, result);
+            }
+
+            return TranslateResponse.success(result, false);
+
+        } catch (SchedulerRejectedException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Translation failed: {}", e.getMessage(), e);
+            // The failure is always kept in the access log (with the upstream reason); the stack trace only at debug level
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            entry.fail(Outcome.FAILED, cause.getMessage());
+            logger.debug("Translation failed", e);
             return TranslateResponse.error("Translation failed: " + e.getMessage());
         }
     }
+
+    /**
+     * Call Gemini, on top of the cached instruction when one is available
+     */
+    private GenerateContentResponse generate(PromptTemplate template, String cachedContext, String text) throws Exception {
+        if (cachedContext != null) {
+            try {
+                GenerateContentResponse response = geminiClient.generate(apiKey, template.renderBody(text), cachedContext);
+                promptContextCache.recordCachedTokens(response.cachedContentTokenCount());
+                return response;
+            } catch (Exception e) {
+                logger.warn("Request with cached context {} failed, sending the full prompt: {}", cachedContext, e.getMessage());
+                promptContextCache.invalidate(template, cachedContext);
+            }
+        }
+        // Sử dụng API key từ application.properties
+        return geminiClient.generate(apiKey, template.render(text));
+    }
 }
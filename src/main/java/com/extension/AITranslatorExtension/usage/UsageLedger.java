@@ -0,0 +1,435 @@
+package com.extension.AITranslatorExtension.usage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-consumer usage accounting: requests, input and output characters, and the token
+ * counts Gemini reports.
+ *
+ * The request path only touches {@link LongAdder} counters, which are striped across
+ * cells so concurrent requests from the same consumer do not contend. Once a minute the
+ * counters are drained into a minute rollup; minute rollups are summed into hour rollups
+ * and both are appended to a binary {@link UsageLog}. Top-consumer queries are answered
+ * from the in-memory rollups (last 60 minutes, last {@code usage.ledger.hours-retained}
+ * hours), which are rebuilt from the log on startup. Without {@code usage.ledger.directory}
+ * nothing is written and usage starts empty after a restart. The minute in progress is not
+ * visible until it is flushed.
+ */
+@Component
+public class UsageLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageLedger.class);
+
+    public static final String UNKNOWN_CONSUMER = "unknown";
+    public static final String OTHER_CONSUMER = "other";
+
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private final boolean enabled;
+    private final int maxConsumers;
+    private final int idleMinutes;
+    private final int hoursRetained;
+    private final int retentionDays;
+    private final UsageLog usageLog;
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    // Flush state, guarded by lock (not a monitor: flushes write to disk, and admin requests
+    // waiting on a monitor would pin their carrier thread when running on virtual threads)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Counters> retired = new ArrayList<>();
+    private final ArrayDeque<UsageRollup> minutes = new ArrayDeque<>();
+    private final ArrayDeque<UsageRollup> hours = new ArrayDeque<>();
+    private UsageRollup currentHour;
+    private long lastFlushedMinute = -1;
+    private long writeErrors;
+
+    public UsageLedger(
+            @Value("${usage.ledger.enabled:true}") boolean enabled,
+            @Value("${usage.ledger.directory:}") String directory,
+            @Value("${usage.ledger.max-consumers:100000}") int maxConsumers,
+            @Value("${usage.ledger.idle-minutes:10}") int idleMinutes,
+            @Value("${usage.ledger.hours-retained:48}") int hoursRetained,
+            @Value("${usage.ledger.retention-days:30}") int retentionDays) {
+        this.enabled = enabled;
+        this.maxConsumers = maxConsumers;
+        this.idleMinutes = Math.max(1, idleMinutes);
+        this.hoursRetained = Math.max(24, hoursRetained);
+        this.retentionDays = retentionDays;
+        this.usageLog = directory.isBlank() ? null : new UsageLog(Path.of(directory));
+        logger.info("Usage ledger {} (log directory: {})", enabled ? "enabled" : "disabled",
+                usageLog != null ? usageLog.getDirectory().toAbsolutePath() : "none, memory only");
+        if (usageLog != null && !usageLog.getDirectory().isAbsolute()) {
+            logger.warn("usage.ledger.directory {} is relative and resolves against the working directory; use an absolute path",
+                    directory);
+        }
+    }
+
+    /**
+     * Record one completed request; token counts are 0 when the model was not called
+     */
+    public void record(String consumer, long inputChars, long outputChars, long promptTokens, long outputTokens) {
+        if (!enabled) {
+            return;
+        }
+        String key = consumer != null ? consumer : UNKNOWN_CONSUMER;
+        Counters entry = counters.get(key);
+        if (entry == null) {
+            // Past the cap, new consumers are pooled so memory stays bounded
+            entry = counters.computeIfAbsent(counters.size() < maxConsumers ? key : OTHER_CONSUMER, Counters::new);
+        }
+        entry.add(inputChars, outputChars, promptTokens, outputTokens);
+    }
+
+    /**
+     * Rebuild the in-memory rollups from the log
+     */
+    @PostConstruct
+    public void restore() {
+        lock.lock();
+        try {
+            if (!enabled || usageLog == null) {
+                return;
+            }
+            long now = currentMinute();
+            long currentHourStart = hourOf(now);
+            long oldestHour = currentHourStart - (long) hoursRetained * MINUTES_PER_HOUR;
+
+            TreeMap<Long, UsageRollup> closedHours = new TreeMap<>();
+            TreeMap<Long, UsageRollup> hoursFromMinutes = new TreeMap<>();
+            TreeMap<Long, UsageRollup> recentMinutes = new TreeMap<>();
+            try {
+                for (LocalDate date = UsageLog.dateOf(oldestHour); !date.isAfter(UsageLog.dateOf(now)); date = date.plusDays(1)) {
+                    for (UsageRollup rollup : usageLog.read(date)) {
+                        long start = rollup.getPeriodStart();
+                        if (start < oldestHour || start > now) {
+                            continue;
+                        }
+                        if (rollup.getType() == UsageRollup.HOUR) {
+                            closedHours.put(start, rollup);
+                            continue;
+                        }
+                        if (start > now - MINUTES_PER_HOUR) {
+                            recentMinutes.computeIfAbsent(start, k -> new UsageRollup(UsageRollup.MINUTE, k)).addAll(rollup);
+                        }
+                        hoursFromMinutes.computeIfAbsent(hourOf(start), k -> new UsageRollup(UsageRollup.HOUR, k)).addAll(rollup);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read usage log: {}", e.getMessage());
+            }
+
+            for (UsageRollup hour : hoursFromMinutes.values()) {
+                if (hour.getPeriodStart() == currentHourStart) {
+                    currentHour = hour;
+                } else if (!closedHours.containsKey(hour.getPeriodStart())) {
+                    // The hour ended while the service was down
+                    persist(hour);
+                    closedHours.put(hour.getPeriodStart(), hour);
+                }
+            }
+            hours.addAll(closedHours.values());
+            minutes.addAll(recentMinutes.values());
+            deleteExpiredLogs(now);
+            logger.info("Usage ledger restored {} hour and {} minute rollups", hours.size(), minutes.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the minute that just ended
+     */
+    @Scheduled(cron = "0 * * * * *")
+    public void flushCompletedMinute() {
+        // Attribute to the minute that ended even if the trigger fires a little late
+        flush(Math.floorDiv(System.currentTimeMillis() - MILLIS_PER_MINUTE / 2, MILLIS_PER_MINUTE));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush(currentMinute());
+    }
+
+    /**
+     * Drain counters into the rollup for the given minute and persist it
+     */
+    void flush(long minute) {
+        lock.lock();
+        try {
+            if (!enabled) {
+                return;
+            }
+            UsageRollup rollup = new UsageRollup(UsageRollup.MINUTE, minute);
+            for (Counters entry : retired) {
+                entry.drainInto(rollup);
+            }
+            retired.clear();
+
+            Iterator<Counters> iterator = counters.values().iterator();
+            while (iterator.hasNext()) {
+                Counters entry = iterator.next();
+                if (entry.drainInto(rollup)) {
+                    entry.idleFlushes = 0;
+                } else if (++entry.idleFlushes >= idleMinutes) {
+                    // A request may still land on the removed counters; drain them once more next minute
+                    iterator.remove();
+                    retired.add(entry);
+                }
+            }
+
+            if (!rollup.isEmpty()) {
+                persist(rollup);
+            }
+
+            UsageRollup last = minutes.peekLast();
+            if (last != null && last.getPeriodStart() == minute) {
+                last.addAll(rollup);
+            } else {
+                minutes.addLast(rollup);
+            }
+            while (minutes.size() > 1 && minutes.peekFirst().getPeriodStart() <= minute - MINUTES_PER_HOUR) {
+                minutes.removeFirst();
+            }
+
+            long hourStart = hourOf(minute);
+            if (currentHour != null && currentHour.getPeriodStart() < hourStart) {
+                closeHour(minute);
+            }
+            if (currentHour == null) {
+                currentHour = new UsageRollup(UsageRollup.HOUR, hourStart);
+            }
+            currentHour.addAll(rollup);
+            lastFlushedMinute = minute;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeHour(long minute) {
+        if (!currentHour.isEmpty()) {
+            persist(currentHour);
+        }
+        hours.addLast(currentHour);
+        currentHour = null;
+        long oldest = hourOf(minute) - (long) hoursRetained * MINUTES_PER_HOUR;
+        while (!hours.isEmpty() && hours.peekFirst().getPeriodStart() < oldest) {
+            hours.removeFirst();
+        }
+        deleteExpiredLogs(minute);
+    }
+
+    private void persist(UsageRollup rollup) {
+        if (usageLog == null) {
+            return;
+        }
+        try {
+            usageLog.append(rollup);
+        } catch (IOException e) {
+            writeErrors++;
+            logger.warn("Could not append usage rollup to {}: {}", usageLog.getDirectory(), e.getMessage());
+        }
+    }
+
+    private void deleteExpiredLogs(long minute) {
+        if (usageLog == null || retentionDays <= 0) {
+            return;
+        }
+        try {
+            usageLog.deleteBefore(UsageLog.dateOf(minute).minusDays(retentionDays));
+        } catch (IOException e) {
+            logger.warn("Could not delete expired usage logs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Top consumers by one metric
+     * @param window "minute" (last flushed minute), "hour" (last 60 minutes) or "day" (last 24 hours)
+     */
+    public List<Map<String, Object>> topConsumers(String window, UsageMetric metric, int limit) {
+        lock.lock();
+        try {
+            UsageRollup usage = aggregate(window);
+            int index = metric.ordinal();
+            PriorityQueue<Map.Entry<String, long[]>> top = new PriorityQueue<>(
+                    Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[index]));
+            for (Map.Entry<String, long[]> entry : usage.getUsage().entrySet()) {
+                if (entry.getValue()[index] == 0) {
+                    continue;
+                }
+                top.offer(entry);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Map<String, Object>> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Map.Entry<String, long[]> entry = top.poll();
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("consumer", entry.getKey());
+                row.putAll(describe(entry.getValue()));
+                result.add(0, row);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Usage of a single consumer over a window
+     */
+    public Map<String, Object> getConsumerUsage(String consumer, String window) {
+        lock.lock();
+        try {
+            long[] values = aggregate(window).getUsage().get(consumer);
+            return describe(values != null ? values : new long[UsageMetric.COUNT]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UsageRollup aggregate(String window) {
+        UsageRollup total = new UsageRollup(UsageRollup.MINUTE, lastFlushedMinute);
+        switch (window.toLowerCase(Locale.ROOT)) {
+            case "minute" -> {
+                if (!minutes.isEmpty()) {
+                    total.addAll(minutes.peekLast());
+                }
+            }
+            case "hour" -> minutes.forEach(total::addAll);
+            case "day" -> {
+                long since = (currentHour != null ? currentHour.getPeriodStart() : hourOf(currentMinute()))
+                        - 23L * MINUTES_PER_HOUR;
+                for (UsageRollup hour : hours) {
+                    if (hour.getPeriodStart() >= since) {
+                        total.addAll(hour);
+                    }
+                }
+                if (currentHour != null) {
+                    total.addAll(currentHour);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown usage window: " + window + " (expected minute, hour or day)");
+        }
+        return total;
+    }
+
+    private static Map<String, Object> describe(long[] values) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (UsageMetric metric : UsageMetric.values()) {
+            row.put(metric.getKey(), values[metric.ordinal()]);
+        }
+        return row;
+    }
+
+    /**
+     * Ledger state and totals per window
+     */
+    public Map<String, Object> getMetrics() {
+        lock.lock();
+        try {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("enabled", enabled);
+            metrics.put("trackedConsumers", counters.size());
+            metrics.put("lastFlushedMinute", lastFlushedMinute >= 0 ? lastFlushedMinute * MILLIS_PER_MINUTE : null);
+            metrics.put("logDirectory", usageLog != null ? usageLog.getDirectory().toAbsolutePath().toString() : null);
+            metrics.put("bytesWritten", usageLog != null ? usageLog.getBytesWritten() : 0L);
+            metrics.put("writeErrors", writeErrors);
+            for (String window : List.of("minute", "hour", "day")) {
+                long[] sum = new long[UsageMetric.COUNT];
+                for (long[] values : aggregate(window).getUsage().values()) {
+                    for (int i = 0; i < sum.length; i++) {
+                        sum[i] += values[i];
+                    }
+                }
+                metrics.put(window, describe(sum));
+            }
+            return metrics;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long currentMinute() {
+        return Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_MINUTE);
+    }
+
+    private static long hourOf(long minute) {
+        return minute - Math.floorMod(minute, MINUTES_PER_HOUR);
+    }
+
+    /**
+     * Cumulative counters of one consumer. The flusher remembers what it already drained,
+     * so concurrent increments are never lost between a read and a reset.
+     */
+    private static final class Counters {
+        final String consumer;
+        final LongAdder[] values = new LongAdder[UsageMetric.COUNT];
+        // Flush state, guarded by the ledger lock
+        final long[] drained = new long[UsageMetric.COUNT];
+        int idleFlushes;
+
+        Counters(String consumer) {
+            this.consumer = consumer;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = new LongAdder();
+            }
+        }
+
+        void add(long inputChars, long outputChars, long promptTokens, long outputTokens) {
+            values[UsageMetric.REQUESTS.ordinal()].increment();
+            values[UsageMetric.INPUT_CHARS.ordinal()].add(inputChars);
+            values[UsageMetric.OUTPUT_CHARS.ordinal()].add(outputChars);
+            if (promptTokens > 0) {
+                values[UsageMetric.PROMPT_TOKENS.ordinal()].add(promptTokens);
+            }
+            if (outputTokens > 0) {
+                values[UsageMetric.OUTPUT_TOKENS.ordinal()].add(outputTokens);
+            }
+        }
+
+        /**
+         * @return true if anything was recorded since the last drain
+         */
+        boolean drainInto(UsageRollup rollup) {
+            long[] delta = new long[values.length];
+            boolean active = false;
+            for (int i = 0; i < values.length; i++) {
+                long total = values[i].sum();
+                delta[i] = total - drained[i];
+                drained[i] = total;
+                active |= delta[i] != 0;
+            }
+            if (active) {
+                rollup.add(consumer, delta);
+            }
+            return active;
+        }
+    }
+}
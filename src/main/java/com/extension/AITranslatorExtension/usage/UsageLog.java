@@ -0,0 +1,270 @@
+package com.extension.AITranslatorExtension.usage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of usage rollups, one file per UTC day ({@code usage-yyyyMMdd.log}).
+ *
+ * A file starts with the magic {@code ULG1} and holds frames of
+ * {@code [int length][payload][int crc32]}. A payload is
+ * {@code [byte type][varlong periodStart][varint entries]} followed by, per entry,
+ * {@code [varint length][utf-8 consumer]} and one varlong per {@link UsageMetric}.
+ * Readers stop at the first truncated or corrupt frame. Before the first append to a file
+ * the writer cuts off anything after the last intact frame, so a torn write loses only the
+ * rollup it was writing and later rollups of the day stay readable.
+ */
+final class UsageLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageLog.class);
+
+    private static final byte[] MAGIC = {'U', 'L', 'G', '1'};
+    private static final String PREFIX = "usage-";
+    private static final String SUFFIX = ".log";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private long bytesWritten;
+    // File whose tail has been checked since it was last written to unsuccessfully
+    private Path checkedFile;
+
+    UsageLog(Path directory) {
+        this.directory = directory;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    static LocalDate dateOf(long epochMinute) {
+        return LocalDate.ofEpochDay(Math.floorDiv(epochMinute, 24 * 60));
+    }
+
+    /**
+     * Append one rollup to the file of the day its period starts in
+     */
+    void append(UsageRollup rollup) throws IOException {
+        byte[] payload = encode(rollup);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer frame = ByteBuffer.allocate(payload.length + 8);
+        frame.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+
+        Files.createDirectories(directory);
+        Path file = fileFor(dateOf(rollup.getPeriodStart()));
+        if (!file.equals(checkedFile)) {
+            repairTail(file);
+            checkedFile = file;
+        }
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (Files.size(file) == 0) {
+                out.write(MAGIC);
+                bytesWritten += MAGIC.length;
+            }
+            out.write(frame.array());
+        } catch (IOException e) {
+            // The write may have been torn; check the tail again before the next append
+            checkedFile = null;
+            throw e;
+        }
+        bytesWritten += frame.capacity();
+    }
+
+    /**
+     * Cut a truncated or corrupt tail off a day file, so frames appended after it stay readable.
+     * A file that is not a usage log at all is moved aside.
+     */
+    private void repairTail(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        int valid = readFrames(bytes, file, null);
+        if (valid < 0) {
+            Path aside = file.resolveSibling(file.getFileName() + ".corrupt");
+            Files.move(file, aside, StandardCopyOption.REPLACE_EXISTING);
+            logger.warn("Moved usage log {} with unknown format to {}", file, aside);
+        } else if (valid < bytes.length) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+            logger.warn("Truncated usage log {} to its last intact frame, dropping {} bytes", file, bytes.length - valid);
+        }
+    }
+
+    /**
+     * Read all intact rollups of one day; a missing file yields an empty list
+     */
+    List<UsageRollup> read(LocalDate date) throws IOException {
+        Path file = fileFor(date);
+        List<UsageRollup> rollups = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return rollups;
+        }
+
+        if (readFrames(Files.readAllBytes(file), file, rollups) < 0) {
+            logger.warn("Ignoring usage log {} with unknown format", file);
+        }
+        return rollups;
+    }
+
+    /**
+     * Decode frames from the start of a day file up to the first truncated or corrupt one
+     * @param rollups receives the decoded rollups, or null to only find where the intact frames end
+     * @return offset just past the last intact frame, or -1 if the file is not a usage log
+     */
+    private static int readFrames(byte[] bytes, Path file, List<UsageRollup> rollups) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.remaining() >= MAGIC.length) {
+            buffer.get(magic);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            return -1;
+        }
+
+        int valid = buffer.position();
+        while (buffer.remaining() > 0) {
+            if (buffer.remaining() < 8) {
+                logger.warn("Usage log {} ends with a truncated frame", file);
+                break;
+            }
+            int length = buffer.getInt();
+            if (length < 0 || length > MAX_FRAME || buffer.remaining() < length + 4) {
+                logger.warn("Usage log {} ends with a truncated frame", file);
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt()) {
+                logger.warn("Usage log {} has a corrupt frame, ignoring the rest of the file", file);
+                break;
+            }
+            UsageRollup rollup;
+            try {
+                rollup = decode(ByteBuffer.wrap(payload));
+            } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+                logger.warn("Usage log {} has an unreadable frame: {}", file, e.getMessage());
+                break;
+            }
+            if (rollups != null) {
+                rollups.add(rollup);
+            }
+            valid = buffer.position();
+        }
+        return valid;
+    }
+
+    /**
+     * Delete day files older than the given date
+     */
+    void deleteBefore(LocalDate oldest) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    LocalDate date = LocalDate.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length()), DATE);
+                    if (date.isBefore(oldest)) {
+                        Files.deleteIfExists(file);
+                        logger.info("Deleted expired usage log {}", file);
+                    }
+                } catch (RuntimeException e) {
+                    // Not one of ours
+                }
+            }
+        }
+    }
+
+    private Path fileFor(LocalDate date) {
+        return directory.resolve(PREFIX + DATE.format(date) + SUFFIX);
+    }
+
+    private static byte[] encode(UsageRollup rollup) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + rollup.getUsage().size() * 32);
+        out.write(rollup.getType());
+        writeVarLong(out, rollup.getPeriodStart());
+        writeVarLong(out, rollup.getUsage().size());
+        for (Map.Entry<String, long[]> entry : rollup.getUsage().entrySet()) {
+            byte[] consumer = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, consumer.length);
+            out.write(consumer, 0, consumer.length);
+            for (long value : entry.getValue()) {
+                writeVarLong(out, value);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static UsageRollup decode(ByteBuffer in) {
+        byte type = in.get();
+        if (type != UsageRollup.MINUTE && type != UsageRollup.HOUR) {
+            throw new IllegalArgumentException("unknown rollup type " + type);
+        }
+        long periodStart = readVarLong(in);
+        int entries = (int) readVarLong(in);
+        Map<String, long[]> usage = new HashMap<>(Math.max(16, entries * 2));
+        for (int i = 0; i < entries; i++) {
+            byte[] consumer = new byte[(int) readVarLong(in)];
+            in.get(consumer);
+            long[] values = new long[UsageMetric.COUNT];
+            for (int m = 0; m < values.length; m++) {
+                values[m] = readVarLong(in);
+            }
+            usage.put(new String(consumer, StandardCharsets.UTF_8), values);
+        }
+        return new UsageRollup(type, periodStart, usage);
+    }
+
+    // Unsigned LEB128; all logged values are non-negative
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+}
@@ -0,0 +1,39 @@
+package com.extension.AITranslatorExtension.usage;
+
+import java.util.Locale;
+
+/**
+ * Quantities tracked per consumer; the ordinal is the index into usage value arrays
+ */
+public enum UsageMetric {
+    REQUESTS("requests"),
+    INPUT_CHARS("inputChars"),
+    OUTPUT_CHARS("outputChars"),
+    PROMPT_TOKENS("promptTokens"),
+    OUTPUT_TOKENS("outputTokens");
+
+    static final int COUNT = values().length;
+
+    private final String key;
+
+    UsageMetric(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Parse a metric name such as "outputTokens" or "output_tokens"
+     */
+    public static UsageMetric parse(String value) {
+        String normalized = value.replace("_", "").replace("-", "").toLowerCase(Locale.ROOT);
+        for (UsageMetric metric : values()) {
+            if (metric.key.toLowerCase(Locale.ROOT).equals(normalized)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Unknown usage metric: " + value);
+    }
+}
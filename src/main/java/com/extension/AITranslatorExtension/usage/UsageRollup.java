@@ -0,0 +1,57 @@
+package com.extension.AITranslatorExtension.usage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Usage per consumer over one period (a minute or an hour), keyed by the period's start
+ * in epoch minutes
+ */
+final class UsageRollup {
+
+    static final byte MINUTE = 1;
+    static final byte HOUR = 2;
+
+    private final byte type;
+    private final long periodStart;
+    private final Map<String, long[]> usage;
+
+    UsageRollup(byte type, long periodStart) {
+        this(type, periodStart, new HashMap<>());
+    }
+
+    UsageRollup(byte type, long periodStart, Map<String, long[]> usage) {
+        this.type = type;
+        this.periodStart = periodStart;
+        this.usage = usage;
+    }
+
+    byte getType() {
+        return type;
+    }
+
+    long getPeriodStart() {
+        return periodStart;
+    }
+
+    Map<String, long[]> getUsage() {
+        return usage;
+    }
+
+    boolean isEmpty() {
+        return usage.isEmpty();
+    }
+
+    void add(String consumer, long[] values) {
+        long[] total = usage.computeIfAbsent(consumer, k -> new long[UsageMetric.COUNT]);
+        for (int i = 0; i < UsageMetric.COUNT; i++) {
+            total[i] += values[i];
+        }
+    }
+
+    void addAll(UsageRollup other) {
+        for (Map.Entry<String, long[]> entry : other.usage.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.extension.AITranslatorExtension.warmup;
+
+import com.extension.AITranslatorExtension.service.TranslationCache.HotEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped snapshot of the hottest cache entries, hottest first:
+ * {@code "WRM1" [int count]} then per entry {@code [key][long frequency][long createdAt][prompt][text][result]},
+ * strings as {@code [int length][utf-8]} with length -1 for null.
+ * Written to a temporary file and moved into place, so readers never see a partial snapshot.
+ */
+final class CacheSnapshotFile {
+
+    private static final int MAGIC = 0x57524d31; // "WRM1"
+    private static final int MAX_STRING = 16 * 1024 * 1024;
+
+    private final Path path;
+
+    CacheSnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    void write(List<HotEntry> entries, boolean includeResults) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(entries.size());
+                for (HotEntry entry : entries) {
+                    writeString(out, entry.getKey());
+                    out.writeLong(entry.getFrequency());
+                    out.writeLong(entry.getCreatedAt());
+                    writeString(out, entry.getPrompt());
+                    writeString(out, entry.getText());
+                    writeString(out, includeResults ? entry.getResult() : null);
+                }
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return snapshotted entries, hottest first; empty if there is no snapshot yet
+     */
+    List<HotEntry> read() throws IOException {
+        List<HotEntry> entries = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return entries;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a cache snapshot: " + path);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                long frequency = in.readLong();
+                long createdAt = in.readLong();
+                String prompt = readString(in);
+                String text = readString(in);
+                String result = readString(in);
+                entries.add(new HotEntry(key, frequency, createdAt, prompt, text, result));
+            }
+        }
+        return entries;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING) {
+            throw new IOException("corrupt cache snapshot");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,279 @@
+package com.extension.AITranslatorExtension.warmup;
+
+import com.extension.AITranslatorExtension.dto.TranslateRequest;
+import com.extension.AITranslatorExtension.dto.TranslateResponse;
+import com.extension.AITranslatorExtension.scheduler.RequestPriority;
+import com.extension.AITranslatorExtension.service.TranslationCache;
+import com.extension.AITranslatorExtension.service.TranslationCache.HotEntry;
+import com.extension.AITranslatorExtension.service.TranslationService;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Warms the translation cache after a restart.
+ *
+ * While running, the hottest cache entries and their recent hit counts are snapshotted to a
+ * file. On startup the top entries are put back: directly when the snapshot holds a result
+ * that is still within the cache TTL, otherwise by re-translating the original request at
+ * background priority, capped at {@code cache.warmup.refetch-per-second}. The instance
+ * reports WARMING_UP on {@code /api/admin/health} until the snapshot has been restored;
+ * re-fetches then continue in the background until done or until
+ * {@code cache.warmup.max-duration-ms} passes.
+ *
+ * The snapshot holds users' prompts and source text, and with {@code cache.warmup.persist-results}
+ * their translations, so it is only written when {@code cache.warmup.file} is set.
+ */
+@Component
+public class CacheWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    // Usage ledger consumer for re-fetches
+    public static final String WARMUP_CONSUMER = "cache-warmup";
+
+    public enum State {
+        DISABLED,
+        PENDING,
+        WARMING,
+        REFETCHING,
+        READY
+    }
+
+    private final TranslationCache translationCache;
+    private final TranslationService translationService;
+    private final CacheSnapshotFile snapshotFile;
+    private final int topN;
+    private final boolean persistResults;
+    private final boolean refetch;
+    private final int refetchPerSecond;
+    private final long maxDurationMs;
+
+    // Serializes snapshot writes from the scheduler and the admin endpoint
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    private volatile State state;
+    private volatile long startedAt;
+    private volatile long readyAt;
+    private volatile long finishedAt;
+    private volatile long lastSnapshotAt;
+    private volatile int lastSnapshotSize;
+    private final AtomicInteger planned = new AtomicInteger();
+    private final AtomicInteger restored = new AtomicInteger();
+    private final AtomicInteger refetched = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    public CacheWarmer(
+            TranslationCache translationCache,
+            TranslationService translationService,
+            @Value("${cache.warmup.enabled:true}") boolean enabled,
+            @Value("${cache.warmup.file:}") String file,
+            @Value("${cache.warmup.top-n:500}") int topN,
+            @Value("${cache.warmup.persist-results:true}") boolean persistResults,
+            @Value("${cache.warmup.refetch:true}") boolean refetch,
+            @Value("${cache.warmup.refetch-per-second:5}") int refetchPerSecond,
+            @Value("${cache.warmup.max-duration-ms:60000}") long maxDurationMs) {
+        this.translationCache = translationCache;
+        this.translationService = translationService;
+        boolean active = enabled && translationCache.isEnabled() && !file.isBlank();
+        this.snapshotFile = active ? new CacheSnapshotFile(Path.of(file)) : null;
+        this.topN = topN;
+        this.persistResults = persistResults;
+        this.refetch = refetch;
+        this.refetchPerSecond = Math.max(1, refetchPerSecond);
+        this.maxDurationMs = maxDurationMs;
+        this.state = active ? State.PENDING : State.DISABLED;
+        logger.info("Cache warm-up {} (snapshot: {}, top {})", active ? "enabled" : "disabled",
+                active ? snapshotFile.getPath().toAbsolutePath() : "none", topN);
+    }
+
+    /**
+     * Warm up in the background once the context is started, so startup is not delayed
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void onApplicationStarted() {
+        if (state != State.PENDING) {
+            return;
+        }
+        state = State.WARMING;
+        Thread thread = new Thread(this::warmUp, "cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void warmUp() {
+        long started = System.currentTimeMillis();
+        startedAt = started;
+        try {
+            List<HotEntry> entries;
+            try {
+                entries = snapshotFile.read();
+            } catch (IOException e) {
+                logger.warn("Could not read cache snapshot {}: {}", snapshotFile.getPath(), e.getMessage());
+                entries = List.of();
+            }
+            if (entries.size() > topN) {
+                entries = entries.subList(0, topN);
+            }
+            planned.set(entries.size());
+
+            long now = System.currentTimeMillis();
+            List<HotEntry> toRefetch = new ArrayList<>();
+            for (HotEntry entry : entries) {
+                if (entry.getResult() != null && now - entry.getCreatedAt() <= translationCache.getTtlMillis()) {
+                    translationCache.restore(entry);
+                    restored.incrementAndGet();
+                } else if (refetch && entry.getPrompt() != null && entry.getText() != null) {
+                    toRefetch.add(entry);
+                } else {
+                    skipped.incrementAndGet();
+                }
+            }
+            // Restored entries are servable now; re-fetches go out at a trickle and need not hold traffic back
+            readyAt = System.currentTimeMillis();
+            if (!toRefetch.isEmpty()) {
+                state = State.REFETCHING;
+                logger.info("Cache warm-up restored {} entries in {} ms, re-fetching {} in the background",
+                        restored.get(), readyAt - started, toRefetch.size());
+            }
+            refetchAll(toRefetch, started + maxDurationMs);
+            logger.info("Cache warm-up finished in {} ms: {} restored, {} re-fetched, {} failed, {} skipped",
+                    System.currentTimeMillis() - started, restored.get(), refetched.get(), failed.get(), skipped.get());
+        } catch (RuntimeException e) {
+            logger.error("Cache warm-up failed: {}", e.getMessage(), e);
+        } finally {
+            finishedAt = System.currentTimeMillis();
+            state = State.READY;
+        }
+    }
+
+    private void refetchAll(List<HotEntry> entries, long deadline) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Bucket rate = Bucket.builder()
+                .addLimit(Bandwidth.classic(refetchPerSecond, Refill.greedy(refetchPerSecond, Duration.ofSeconds(1))))
+                .build();
+
+        for (int i = 0; i < entries.size(); i++) {
+            long remaining = deadline - System.currentTimeMillis();
+            boolean permitted = false;
+            try {
+                permitted = remaining > 0 && rate.asBlocking().tryConsume(1, Duration.ofMillis(remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!permitted) {
+                skipped.addAndGet(entries.size() - i);
+                logger.warn("Cache warm-up stopped after {} ms with {} entries left", maxDurationMs, entries.size() - i);
+                return;
+            }
+
+            HotEntry entry = entries.get(i);
+            TranslateRequest request = new TranslateRequest(entry.getText(), entry.getPrompt());
+            request.setPriority(RequestPriority.BACKGROUND.name());
+            try {
+                TranslateResponse response = translationService.translate(request, WARMUP_CONSUMER);
+                if (response.isSuccess()) {
+                    translationCache.seedHits(entry.getKey(), entry.getFrequency());
+                    refetched.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                logger.debug("Cache warm-up re-fetch failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write the hottest entries to the snapshot file
+     * @return number of entries written
+     */
+    public int snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            if (snapshotFile == null) {
+                return 0;
+            }
+            List<HotEntry> hottest = translationCache.hottest(topN);
+            snapshotFile.write(hottest, persistResults);
+            lastSnapshotAt = System.currentTimeMillis();
+            lastSnapshotSize = hottest.size();
+            logger.debug("Snapshotted {} hot cache entries to {}", hottest.size(), snapshotFile.getPath());
+            return hottest.size();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.warmup.snapshot-interval-ms:300000}",
+            initialDelayString = "${cache.warmup.snapshot-interval-ms:300000}")
+    public void scheduledSnapshot() {
+        // A snapshot taken mid warm-up, re-fetches included, would replace the previous one with partial data
+        if (state != State.READY) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException e) {
+            logger.warn("Could not write cache snapshot {}: {}", snapshotFile.getPath(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduledSnapshot();
+    }
+
+    /**
+     * True once the snapshot has been restored, or when warm-up is disabled. Re-fetches may still be running.
+     */
+    public boolean isReady() {
+        return state == State.REFETCHING || state == State.READY || state == State.DISABLED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("state", state.name().toLowerCase(Locale.ROOT));
+        progress.put("ready", isReady());
+        progress.put("planned", planned.get());
+        progress.put("restored", restored.get());
+        progress.put("refetched", refetched.get());
+        progress.put("failed", failed.get());
+        progress.put("skipped", skipped.get());
+        progress.put("startedAt", startedAt > 0 ? startedAt : null);
+        progress.put("readyAfterMs", readyAt > 0 ? readyAt - startedAt : null);
+        progress.put("durationMs", startedAt == 0 ? null
+                : (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - startedAt);
+        progress.put("snapshotFile", snapshotFile != null ? snapshotFile.getPath().toAbsolutePath().toString() : null);
+        progress.put("lastSnapshotAt", lastSnapshotAt > 0 ? lastSnapshotAt : null);
+        progress.put("lastSnapshotSize", lastSnapshotSize);
+        return progress;
+    }
+}
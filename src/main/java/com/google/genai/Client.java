@@ -1,5 +1,7 @@
 package com.google.genai;
 
+import com.google.genai.types.CachedContent;
+import com.google.genai.types.GenerateContentConfig;
 import com.google.genai.types.GenerateContentResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -11,55 +13,102 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class Client {
     private static final Logger logger = LoggerFactory.getLogger(Client.class);
+    // Thread-safe once configured; shared instead of built per request
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     private final String apiKey;
     public final Models models;
+    public final Caches caches;
 
     public Client() {
-        this.apiKey = System.getenv("GEMINI_API_KEY");
-        this.models = new Models(this.apiKey);
+        this(System.getenv("GEMINI_API_KEY"));
     }
 
     public Client(String apiKey) {
+        this(apiKey, Models.GEMINI_API_URL);
+    }
+
+    public Client(String apiKey, String baseUrl) {
+        this(apiKey, baseUrl, newHttpClient());
+    }
+
+    /**
+     * @param httpClient shared HTTP client; reusing one keeps its connection pool and selector thread
+     */
+    public Client(String apiKey, String baseUrl, HttpClient httpClient) {
         this.apiKey = apiKey;
-        this.models = new Models(apiKey);
+        this.models = new Models(apiKey, baseUrl, httpClient);
+        this.caches = new Caches(apiKey, baseUrl, httpClient);
+    }
+
+    public static HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
     }
 
     public static class Models {
         private static final Logger logger = LoggerFactory.getLogger(Models.class);
         private static final String GEMINI_API_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
         private final String apiKey;
+        private final String baseUrl;
         private final HttpClient httpClient;
         private final ObjectMapper objectMapper;
 
         public Models(String apiKey) {
+            this(apiKey, GEMINI_API_URL);
+        }
+
+        public Models(String apiKey, String baseUrl) {
+            this(apiKey, baseUrl, newHttpClient());
+        }
+
+        public Models(String apiKey, String baseUrl, HttpClient httpClient) {
             this.apiKey = apiKey;
-            this.httpClient = HttpClient.newBuilder()
-                    .connectTimeout(Duration.ofSeconds(10))
-                    .build();
-            this.objectMapper = new ObjectMapper();
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+            this.httpClient = httpClient;
+            this.objectMapper = OBJECT_MAPPER;
         }
 
         public GenerateContentResponse generateContent(String model, String prompt, Object config) {
             try {
-                String requestBody = String.format("""
-                    {
-                        "contents": [{
-                            "parts": [{
-                                "text": %s
-                            }]
-                        }]
-                    }
-                    """, objectMapper.writeValueAsString(prompt));
-
-                logger.debug("Sending request to: {}", GEMINI_API_URL + model + ":generateContent");
+                String cachedContent = config instanceof GenerateContentConfig generateConfig
+                        ? generateConfig.cachedContent() : null;
+                String requestBody = cachedContent == null
+                        ? String.format("""
+                            {
+                                "contents": [{
+                                    "parts": [{
+                                        "text": %s
+                                    }]
+                                }]
+                            }
+                            """, objectMapper.writeValueAsString(prompt))
+                        : String.format("""
+                            {
+                                "cachedContent": %s,
+                                "contents": [{
+                                    "role": "user",
+                                    "parts": [{
+                                        "text": %s
+                                    }]
+                                }]
+                            }
+                            """, objectMapper.writeValueAsString(cachedContent), objectMapper.writeValueAsString(prompt));
+
+                logger.debug("Sending request to: {}{}:generateContent", baseUrl, model);
                 logger.trace("Request body: {}", requestBody);
 
                 HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(GEMINI_API_URL + model + ":generateContent?key=" + apiKey))
+                        .uri(URI.create(baseUrl + model + ":generateContent?key=" + apiKey))
                         .header("Content-Type", "application/json")
                         .timeout(Duration.ofSeconds(30))
                         .POST(HttpRequest.BodyPublishers.ofString(requestBody))
@@ -71,13 +120,12 @@ public class Client {
                 logger.trace("Response body: {}", response.body());
 
                 if (response.statusCode() != 200) {
-                    logger.error("Gemini API error: {}", response.body());
                     throw new RuntimeException("Gemini API error: " + response.body());
                 }
 
                 return parseGeminiResponse(response.body());
             } catch (Exception e) {
-                logger.error("Error in generateContent: {}", e.getMessage(), e);
+                // Reported by the caller (access log), not logged again on the request thread
                 throw new RuntimeException("Failed to generate content", e);
             }
         }
@@ -96,7 +144,97 @@ public class Client {
             }
 
             String text = content.get(0).path("text").asText();
-            return new GenerateContentResponse(text);
+            JsonNode usage = root.path("usageMetadata");
+            return new GenerateContentResponse(text,
+                    usage.path("promptTokenCount").asInt(0),
+                    usage.path("candidatesTokenCount").asInt(0),
+                    usage.path("cachedContentTokenCount").asInt(0));
+        }
+    }
+
+    /**
+     * Explicit context caching (cachedContents resources)
+     */
+    public static class Caches {
+        private static final Logger logger = LoggerFactory.getLogger(Caches.class);
+        private final String apiKey;
+        private final String rootUrl;
+        private final HttpClient httpClient;
+        private final ObjectMapper objectMapper;
+
+        public Caches(String apiKey, String baseUrl) {
+            this(apiKey, baseUrl, newHttpClient());
+        }
+
+        public Caches(String apiKey, String baseUrl, HttpClient httpClient) {
+            this.apiKey = apiKey;
+            // cachedContents lives next to models/ under the API version root
+            String url = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+            this.rootUrl = url.endsWith("/models/") ? url.substring(0, url.length() - "models/".length()) : url;
+            this.httpClient = httpClient;
+            this.objectMapper = OBJECT_MAPPER;
+        }
+
+        /**
+         * Cache a system instruction for a model
+         */
+        public CachedContent create(String model, String systemInstruction, Duration ttl) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("model", "models/" + model);
+            body.put("systemInstruction", Map.of("parts", List.of(Map.of("text", systemInstruction))));
+            body.put("ttl", ttl.toSeconds() + "s");
+            return send("POST", "cachedContents", body);
+        }
+
+        /**
+         * Extend the lifetime of a cached content
+         */
+        public CachedContent update(String name, Duration ttl) {
+            return send("PATCH", name + "?updateMask=ttl", Map.of("ttl", ttl.toSeconds() + "s"));
+        }
+
+        public void delete(String name) {
+            send("DELETE", name, null);
+        }
+
+        private CachedContent send(String method, String path, Object body) {
+            try {
+                String separator = path.contains("?") ? "&" : "?";
+                HttpRequest.Builder request = HttpRequest.newBuilder()
+                        .uri(URI.create(rootUrl + path + separator + "key=" + apiKey))
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofSeconds(30))
+                        .method(method, body == null
+                                ? HttpRequest.BodyPublishers.noBody()
+                                : HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+
+                logger.debug("{} {}", method, rootUrl + path);
+                HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new RuntimeException("Gemini API error: " + response.body());
+                }
+                if (body == null) {
+                    return null;
+                }
+
+                JsonNode root = objectMapper.readTree(response.body());
+                return new CachedContent(root.path("name").asText(), parseInstant(root.path("expireTime").asText(null)));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Cached content request failed", e);
+            }
+        }
+
+        private static Instant parseInstant(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Instant.parse(value);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
         }
     }
 }
@@ -0,0 +1,24 @@
+package com.google.genai.types;
+
+import java.time.Instant;
+
+public class CachedContent {
+    private final String name;
+    private final Instant expireTime;
+
+    public CachedContent(String name, Instant expireTime) {
+        this.name = name;
+        this.expireTime = expireTime;
+    }
+
+    /**
+     * Resource name, e.g. "cachedContents/abc123"
+     */
+    public String name() {
+        return this.name;
+    }
+
+    public Instant expireTime() {
+        return this.expireTime;
+    }
+}
@@ -0,0 +1,16 @@
+package com.google.genai.types;
+
+public class GenerateContentConfig {
+    private final String cachedContent;
+
+    public GenerateContentConfig(String cachedContent) {
+        this.cachedContent = cachedContent;
+    }
+
+    /**
+     * Name of a cached content to use as context, or null
+     */
+    public String cachedContent() {
+        return this.cachedContent;
+    }
+}
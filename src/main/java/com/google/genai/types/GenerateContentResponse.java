@@ -2,12 +2,47 @@ package com.google.genai.types;
 
 public class GenerateContentResponse {
     private final String text;
+    private final int promptTokenCount;
+    private final int candidatesTokenCount;
+    private final int cachedContentTokenCount;
 
     public GenerateContentResponse(String text) {
+        this(text, 0, 0, 0);
+    }
+
+    public GenerateContentResponse(String text, int promptTokenCount, int candidatesTokenCount) {
+        this(text, promptTokenCount, candidatesTokenCount, 0);
+    }
+
+    public GenerateContentResponse(String text, int promptTokenCount, int candidatesTokenCount, int cachedContentTokenCount) {
         this.text = text;
+        this.promptTokenCount = promptTokenCount;
+        this.candidatesTokenCount = candidatesTokenCount;
+        this.cachedContentTokenCount = cachedContentTokenCount;
     }
 
     public String text() {
         return this.text;
     }
+
+    /**
+     * Input tokens reported in usageMetadata, 0 when absent
+     */
+    public int promptTokenCount() {
+        return this.promptTokenCount;
+    }
+
+    /**
+     * Output tokens reported in usageMetadata, 0 when absent
+     */
+    public int candidatesTokenCount() {
+        return this.candidatesTokenCount;
+    }
+
+    /**
+     * Prompt tokens served from a cached content, 0 when none was used
+     */
+    public int cachedContentTokenCount() {
+        return this.cachedContentTokenCount;
+    }
 }
@@ -0,0 +1,136 @@
+package com.extension.AITranslatorExtension.accesslog;
+
+import com.extension.AITranslatorExtension.accesslog.AccessLogEntry.Outcome;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogTests {
+
+	@Test
+	void ringBufferKeepsEveryItemFromConcurrentProducers() throws Exception {
+		RingBuffer<Long> ring = new RingBuffer<>(64);
+		int producers = 4;
+		int perProducer = 10_000;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			long base = (long) p * perProducer;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < perProducer; i++) {
+					while (!ring.offer(base + i)) {
+						Thread.onSpinWait();
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+
+		start.countDown();
+		long[] lastSeen = new long[producers];
+		Arrays.fill(lastSeen, -1);
+		int received = 0;
+		while (received < producers * perProducer) {
+			Long item = ring.poll();
+			if (item == null) {
+				Thread.onSpinWait();
+				continue;
+			}
+			int producer = (int) (item / perProducer);
+			assertTrue(item > lastSeen[producer], "items of one producer arrive in order");
+			lastSeen[producer] = item;
+			received++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(ring.poll());
+		assertEquals(0, ring.size());
+	}
+
+	@Test
+	void ringBufferRejectsWhenFull() {
+		RingBuffer<String> ring = new RingBuffer<>(4);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ring.offer("item" + i));
+		}
+		assertFalse(ring.offer("overflow"));
+		assertEquals("item0", ring.poll());
+		assertTrue(ring.offer("item4"));
+	}
+
+	@Test
+	void samplesSuccessesButKeepsFailuresAndSlowRequests() {
+		AccessLog accessLog = new AccessLog(true, 16, 0.0, 1000, 100, 60_000, 100);
+
+		AccessLogEntry success = new AccessLogEntry("POST", "/api/generate", 40);
+		success.complete(200);
+		accessLog.record(success);
+
+		AccessLogEntry failure = new AccessLogEntry("POST", "/api/generate", 40);
+		failure.fail(Outcome.FAILED, "Gemini API error: quota");
+		failure.complete(400);
+		accessLog.record(failure);
+
+		Map<String, Object> metrics = accessLog.getMetrics();
+		assertEquals(1L, metrics.get("sampledOut"));
+		assertEquals(1L, metrics.get("recorded"));
+		assertEquals(1, accessLog.drain());
+		assertEquals(1L, accessLog.getMetrics().get("written"));
+	}
+
+	@Test
+	void deduplicatesWarningsPerKey() {
+		WarningDeduplicator deduplicator = new WarningDeduplicator(1000, 2);
+		assertEquals(0, deduplicator.tryAcquire("ip:10.0.0.1", 0));
+		assertEquals(-1, deduplicator.tryAcquire("ip:10.0.0.1", 10));
+		assertEquals(-1, deduplicator.tryAcquire("ip:10.0.0.1", 20));
+		assertEquals(0, deduplicator.tryAcquire("ip:10.0.0.2", 20));
+		assertEquals(2, deduplicator.tryAcquire("ip:10.0.0.1", 1000));
+
+		// Past max keys, new keys share the overflow window
+		assertEquals(0, deduplicator.tryAcquire("ip:10.0.0.3", 1000));
+		assertEquals(-1, deduplicator.tryAcquire("ip:10.0.0.4", 1001));
+		assertEquals(3, deduplicator.size());
+
+		AccessLog accessLog = new AccessLog(true, 16, 1.0, 1000, 100, 60_000, 100);
+		for (int i = 0; i < 100; i++) {
+			accessLog.warn(LoggerFactory.getLogger(AccessLogTests.class), "ip:10.0.0.9", "IP rate limit exceeded for: {}", "10.0.0.9");
+		}
+		assertEquals(1, accessLog.drain());
+		assertEquals(99L, accessLog.getMetrics().get("warningsSuppressed"));
+	}
+
+	@Test
+	void writesCompactJson() {
+		AccessLogEntry entry = new AccessLogEntry("POST", "/api/generate", 52);
+		entry.setClient("10.0.0.1");
+		entry.setCache("miss");
+		entry.setSizes(30, 12);
+		entry.fail(Outcome.FAILED, "Gemini API error: {\"error\": \"quota\"}\n");
+		entry.complete(400);
+
+		StringBuilder json = new StringBuilder();
+		entry.appendJson(json);
+		String line = json.toString();
+		assertTrue(line.startsWith("{\"ts\":"));
+		assertTrue(line.contains(",\"method\":\"POST\",\"route\":\"/api/generate\",\"status\":400,\"outcome\":\"failed\""));
+		assertTrue(line.contains(",\"cache\":\"miss\""));
+		assertTrue(line.contains(",\"inputChars\":30,\"outputChars\":12"));
+		assertTrue(line.contains(",\"error\":\"Gemini API error: {\\\"error\\\": \\\"quota\\\"}\\n\"}"));
+		assertFalse(line.contains("upstreamMs"));
+	}
+}
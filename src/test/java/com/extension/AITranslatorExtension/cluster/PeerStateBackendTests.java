@@ -0,0 +1,215 @@
+package com.extension.AITranslatorExtension.cluster;
+
+import com.extension.AITranslatorExtension.service.TranslationCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerStateBackendTests {
+
+	private static final String SECRET = "test-secret";
+	private static final int CAPACITY = 20;
+	// cluster.lease.ttl-ms default
+	private static final long LEASE_TTL_MS = 2000;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final List<HttpServer> servers = new ArrayList<>();
+	private PeerStateBackend owner;
+	private PeerStateBackend peer;
+	private String key;
+
+	/**
+	 * Two nodes, each serving the lease endpoint the way ClusterController does
+	 */
+	@BeforeEach
+	void startNodes() throws IOException {
+		HttpServer first = newServer();
+		HttpServer second = newServer();
+		List<String> nodes = List.of(url(first), url(second));
+		PeerStateBackend firstBackend = newBackend(url(first), nodes, SECRET);
+		PeerStateBackend secondBackend = newBackend(url(second), nodes, SECRET);
+		serveLeases(first, firstBackend);
+		serveLeases(second, secondBackend);
+
+		owner = firstBackend;
+		peer = secondBackend;
+		for (int i = 0; ; i++) {
+			key = "ip:198.51.100." + i;
+			if (owner.ownerOf(key).equals(url(first))) {
+				break;
+			}
+		}
+	}
+
+	@AfterEach
+	void stopNodes() {
+		servers.forEach(server -> server.stop(0));
+	}
+
+	private HttpServer newServer() throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		servers.add(server);
+		return server;
+	}
+
+	private static String url(HttpServer server) {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	private static PeerStateBackend newBackend(String self, List<String> nodes, String secret) {
+		return new PeerStateBackend(self, nodes, 64, secret, 0.1, LEASE_TTL_MS, 2000, new TranslationCache(true, 100, 3600));
+	}
+
+	private void serveLeases(HttpServer server, PeerStateBackend backend) {
+		server.createContext("/internal/cluster/lease", exchange -> {
+			if (!backend.isAuthorized(exchange.getRequestHeaders().getFirst(PeerStateBackend.TOKEN_HEADER))) {
+				exchange.sendResponseHeaders(403, -1);
+				exchange.close();
+				return;
+			}
+			JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+			PeerStateBackend.LeaseGrant grant = backend.grantLease(request.get("key").asText(),
+					request.get("capacity").asInt(), request.get("periodSeconds").asInt(), request.get("requested").asLong(),
+						request.path("returned").asLong(0));
+			byte[] body = objectMapper.writeValueAsBytes(Map.of(
+					"granted", grant.granted(), "retryAfterMillis", grant.retryAfterMillis()));
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+	}
+
+	@Test
+	void concurrentRequestsOnBothNodesGetExactlyTheConfiguredLimit() throws Exception {
+		AtomicInteger allowed = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (PeerStateBackend node : List.of(owner, peer, peer)) {
+			for (int t = 0; t < 4; t++) {
+				Thread thread = new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < 15; i++) {
+						if (node.tryConsume(key, CAPACITY, 60)) {
+							allowed.incrementAndGet();
+						}
+					}
+				});
+				thread.start();
+				threads.add(thread);
+			}
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join(10_000);
+		}
+		// Spend whatever the peer still holds in its lease
+		for (int i = 0; i < CAPACITY; i++) {
+			if (peer.tryConsume(key, CAPACITY, 60)) {
+				allowed.incrementAndGet();
+			}
+		}
+
+		// No leased token is lost and none is granted twice
+		assertEquals(CAPACITY, allowed.get());
+		assertEquals(0L, peer.getMetrics().get("peerErrors"));
+	}
+
+	@Test
+	void deniedLeaseIsRememberedUntilTheOwnerRefills() {
+		int allowed = 0;
+		for (int i = 0; i < CAPACITY + 10; i++) {
+			if (peer.tryConsume(key, CAPACITY, 60)) {
+				allowed++;
+			}
+		}
+		assertEquals(CAPACITY, allowed);
+		long fetches = (Long) peer.getMetrics().get("leaseFetches");
+
+		for (int i = 0; i < 50; i++) {
+			assertFalse(peer.tryConsume(key, CAPACITY, 60));
+		}
+		assertEquals(fetches, peer.getMetrics().get("leaseFetches"), "denied client must not cause peer calls");
+		assertTrue((Long) peer.getMetrics().get("cachedDenials") >= 50);
+	}
+
+	@Test
+	void unusedLeaseTokensGoBackToTheOwner() throws Exception {
+		// A client sending a request every few seconds through a node that does not own its key
+		for (int i = 0; i < 3; i++) {
+			assertTrue(peer.tryConsume(key, CAPACITY, 60));
+			Thread.sleep(LEASE_TTL_MS + 100);
+		}
+		// Each lease was charged once per request; only the last one still holds a token
+		long leaseSize = 2;
+		assertEquals(CAPACITY - 3 - (leaseSize - 1), owner.availableTokens(key));
+
+		// With no request to carry it, the purge returns the rest
+		peer.purgeExpiredLeases();
+		assertEquals(0, peer.getMetrics().get("activeLeases"));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (owner.availableTokens(key) != CAPACITY - 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(CAPACITY - 3, owner.availableTokens(key));
+	}
+
+	@Test
+	void purgeDropsOwnedBucketsOnceRefilled() throws InterruptedException {
+		assertTrue(owner.tryConsume(key, CAPACITY, 1));
+		owner.purgeExpiredLeases();
+		assertEquals(1, owner.getMetrics().get("ownedBuckets"));
+
+		Thread.sleep(1100);
+		owner.purgeExpiredLeases();
+		assertEquals(0, owner.getMetrics().get("ownedBuckets"));
+		assertEquals(-1, owner.availableTokens(key));
+	}
+
+	@Test
+	void requiresASecret() {
+		assertThrows(IllegalStateException.class,
+				() -> newBackend("http://127.0.0.1:1", List.of("http://127.0.0.1:1"), ""));
+		PeerStateBackend backend = newBackend("http://127.0.0.1:1", List.of("http://127.0.0.1:1"), SECRET);
+		assertTrue(backend.isAuthorized(SECRET));
+		assertFalse(backend.isAuthorized(null));
+		assertFalse(backend.isAuthorized(""));
+		assertFalse(backend.isAuthorized("test-secreT"));
+	}
+
+	@Test
+	void rejectsPeersWithTheWrongSecret() {
+		PeerStateBackend stranger = newBackend("http://127.0.0.1:1",
+				List.of("http://127.0.0.1:1", url(servers.get(0))), "wrong-secret");
+
+		String strangerKey = key;
+		for (int i = 0; !stranger.ownerOf(strangerKey).equals(url(servers.get(0))); i++) {
+			strangerKey = "ip:203.0.113." + i;
+		}
+		// The owner answers 403; the stranger fails open on its local limits but gets no tokens
+		assertTrue(stranger.tryConsume(strangerKey, CAPACITY, 60));
+		assertEquals(1L, stranger.getMetrics().get("peerErrors"));
+		assertEquals(0, owner.getMetrics().get("ownedBuckets"));
+	}
+}
@@ -0,0 +1,27 @@
+package com.extension.AITranslatorExtension.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsTests {
+
+	@Test
+	void availableOnlyFromJava21() throws Exception {
+		assertEquals(Runtime.version().feature() >= 21, VirtualThreads.isSupported());
+		assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+
+		if (!VirtualThreads.isSupported()) {
+			assertThrows(IllegalStateException.class, VirtualThreads::newPerTaskExecutor);
+			return;
+		}
+		ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+		try {
+			assertTrue(executor.submit(() -> VirtualThreads.isVirtual(Thread.currentThread())).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.extension.AITranslatorExtension.filter;
+
+import com.extension.AITranslatorExtension.config.RequestArrivalConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadSheddingFilterTests {
+
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final LoadSheddingFilter filter = new LoadSheddingFilter(true, 100, 1000, "X-Request-Start", 2);
+
+	@Test
+	void shedsLateRequestsOnlyAfterAFullIntervalAboveTarget() {
+		long base = System.nanoTime();
+
+		// A burst inside the first interval is absorbed
+		assertTrue(filter.admit(300 * MS, base + MS));
+		assertTrue(filter.admit(150 * MS, base + 500 * MS));
+		assertFalse(filter.isOverloaded());
+
+		// The interval's minimum (150 ms) stayed above the target: late requests are shed
+		assertFalse(filter.admit(150 * MS, base + 1001 * MS));
+		assertTrue(filter.isOverloaded());
+		assertTrue(filter.admit(50 * MS, base + 1100 * MS), "requests within target are still served");
+
+		// One request under the target in the interval shows the queue drained
+		assertTrue(filter.admit(200 * MS, base + 2002 * MS));
+		assertFalse(filter.isOverloaded());
+	}
+
+	@Test
+	void keepsSheddingWhileTheQueueStands() {
+		long base = System.nanoTime();
+		filter.admit(300 * MS, base + MS);
+		filter.admit(300 * MS, base + 1001 * MS);
+		assertTrue(filter.isOverloaded());
+
+		// Every request of the next interval waited longer than the target
+		assertFalse(filter.admit(250 * MS, base + 1500 * MS));
+		assertFalse(filter.admit(150 * MS, base + 2002 * MS));
+		assertTrue(filter.isOverloaded());
+	}
+
+	@Test
+	void sendsPrecomputed503WithRetryAfter() throws Exception {
+		long start = System.nanoTime();
+		filter.admit(300 * MS, start);
+		filter.admit(300 * MS, start + 1001 * MS);
+		assertTrue(filter.isOverloaded());
+
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/generate");
+		request.setAttribute(RequestArrivalConfig.ARRIVAL_NANOS_ATTRIBUTE, System.nanoTime() - 500 * MS);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(request, response, chain);
+
+		assertEquals(503, response.getStatus());
+		assertEquals("2", response.getHeader("Retry-After"));
+		assertEquals("application/json", response.getContentType());
+		assertTrue(response.getContentAsString().contains("\"status\":503"));
+		assertNull(chain.getRequest(), "shed request must not reach the controller");
+
+		// A request stamped just now is still served
+		MockHttpServletRequest fresh = new MockHttpServletRequest("POST", "/api/generate");
+		fresh.setAttribute(RequestArrivalConfig.ARRIVAL_NANOS_ATTRIBUTE, System.nanoTime());
+		MockFilterChain freshChain = new MockFilterChain();
+		filter.doFilter(fresh, new MockHttpServletResponse(), freshChain);
+		assertNotNull(freshChain.getRequest());
+	}
+
+	@Test
+	void proxyStampAddsOnlyDelayBeyondClockOffset() {
+		long now = System.nanoTime();
+		// The proxy clock runs 5 s ahead: the first stamp only establishes the offset
+		assertEquals(10 * MS, filter.sojournWithProxyStamp(10 * MS, -4990 * MS, now));
+		// 200 ms more between proxy and server than the best case is queueing in front of Tomcat
+		assertEquals(210 * MS, filter.sojournWithProxyStamp(10 * MS, -4790 * MS, now + MS));
+		// A stamp far off the server clock is ignored
+		assertEquals(10 * MS, filter.sojournWithProxyStamp(10 * MS, TimeUnit.MINUTES.toNanos(5), now + 2 * MS));
+	}
+
+	@Test
+	void parsesArrivalHeaderFormats() {
+		assertEquals(1_700_000_000_123L, LoadSheddingFilter.parseArrivalMillis("t=1700000000.123"));
+		assertEquals(1_700_000_000_000L, LoadSheddingFilter.parseArrivalMillis("1700000000"));
+		assertEquals(1_700_000_000_123L, LoadSheddingFilter.parseArrivalMillis("1700000000123"));
+		assertEquals(1_700_000_000_123L, LoadSheddingFilter.parseArrivalMillis("t=1700000000123456"));
+		assertEquals(1_700_000_000_123L, LoadSheddingFilter.parseArrivalMillis("1700000000123456789"));
+		assertEquals(-1L, LoadSheddingFilter.parseArrivalMillis("soon"));
+	}
+}
@@ -0,0 +1,67 @@
+package com.extension.AITranslatorExtension.filter;
+
+import com.extension.AITranslatorExtension.accesslog.AccessLog;
+import com.extension.AITranslatorExtension.cluster.LocalStateBackend;
+import com.extension.AITranslatorExtension.network.ClientIpResolver;
+import com.extension.AITranslatorExtension.service.RateLimitingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitingFilterTests {
+
+	private static RateLimitingFilter newFilter(int translateRequests) {
+		RateLimitingService service = new RateLimitingService();
+		ReflectionTestUtils.setField(service, "clusterStateBackend", new LocalStateBackend());
+		ReflectionTestUtils.setField(service, "accessLog", new AccessLog(false, 16, 1.0, 1000, 100, 60_000, 100));
+		ReflectionTestUtils.setField(service, "ipRequestLimit", 100);
+		ReflectionTestUtils.setField(service, "ipPeriodSeconds", 60);
+		ReflectionTestUtils.setField(service, "prefixRequestLimit", 400);
+		ReflectionTestUtils.setField(service, "prefixPeriodSeconds", 60);
+		ReflectionTestUtils.setField(service, "maxTrackedAddresses", 256);
+		ReflectionTestUtils.setField(service, "translateRequestLimit", translateRequests);
+		ReflectionTestUtils.setField(service, "translatePeriodSeconds", 60);
+		ReflectionTestUtils.setField(service, "healthRequestLimit", 60);
+		ReflectionTestUtils.setField(service, "healthPeriodSeconds", 60);
+		ReflectionTestUtils.setField(service, "routesSpec", "");
+		ReflectionTestUtils.setField(service, "routesFile", "");
+		ReflectionTestUtils.setField(service, "defaultRouteRequestLimit", 30);
+		ReflectionTestUtils.setField(service, "defaultRoutePeriodSeconds", 60);
+		ReflectionTestUtils.invokeMethod(service, "initRoutePolicies");
+
+		RateLimitingFilter filter = new RateLimitingFilter();
+		ReflectionTestUtils.setField(filter, "rateLimitingService", service);
+		ReflectionTestUtils.setField(filter, "clientIpResolver", new ClientIpResolver(List.of()));
+		return filter;
+	}
+
+	private static int send(RateLimitingFilter filter, String uri) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+		request.setRemoteAddr("198.51.100.7");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response.getStatus();
+	}
+
+	@Test
+	void encodedPathsShareTheRouteBudget() throws Exception {
+		RateLimitingFilter filter = newFilter(3);
+		assertEquals(200, send(filter, "/api/generate"));
+		assertEquals(200, send(filter, "/api/gener%61te"));
+		assertEquals(200, send(filter, "/%61pi/generate/"));
+		assertEquals(429, send(filter, "/api/gener%61te"));
+		assertEquals(429, send(filter, "/api/generate;x=1"));
+	}
+
+	@Test
+	void resolvesTheDispatchedPath() {
+		assertEquals("/api/generate", RateLimitingFilter.requestPath(new MockHttpServletRequest("POST", "/api/gener%61te")));
+		assertEquals("/api/generate", RateLimitingFilter.requestPath(new MockHttpServletRequest("POST", "/api/x/%2e%2e/generate")));
+	}
+}
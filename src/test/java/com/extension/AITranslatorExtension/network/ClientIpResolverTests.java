@@ -0,0 +1,49 @@
+package com.extension.AITranslatorExtension.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientIpResolverTests {
+
+	private final ClientIpResolver resolver = new ClientIpResolver(List.of("127.0.0.1/32", "10.0.0.0/8", "::1/128"));
+
+	@Test
+	void ignoresForwardingHeadersFromUntrustedPeer() {
+		ClientAddress client = resolver.resolve("203.0.113.7", "1.2.3.4", "5.6.7.8");
+		assertEquals("203.0.113.7", client.getLimitKey());
+		assertEquals("203.0.113.0/24", client.getPrefixKey());
+	}
+
+	@Test
+	void walksForwardedChainPastTrustedHops() {
+		// Leftmost entry is client-supplied and must not be trusted
+		ClientAddress client = resolver.resolve("127.0.0.1", "6.6.6.6, 198.51.100.20, 10.1.2.3", null);
+		assertEquals("198.51.100.20", client.getAddress());
+	}
+
+	@Test
+	void stopsAtGarbageHop() {
+		ClientAddress client = resolver.resolve("127.0.0.1", "198.51.100.20, unknown", null);
+		assertEquals("127.0.0.1", client.getAddress());
+	}
+
+	@Test
+	void groupsIpv6ClientsBySubnet() {
+		ClientAddress client = resolver.resolve("2001:db8:1:2:aaaa:bbbb:cccc:dddd", null, null);
+		assertEquals("2001:db8:1:2:0:0:0:0/64", client.getLimitKey());
+		assertEquals("2001:db8:1:0:0:0:0:0/48", client.getPrefixKey());
+	}
+
+	@Test
+	void trieMatchesIpv4MappedAndRejectsHostnames() {
+		CidrTrie trie = new CidrTrie();
+		trie.add("192.168.0.0/16");
+		assertTrue(trie.contains(InetAddresses.parseLiteral("::ffff:192.168.4.1")));
+		assertFalse(trie.contains(InetAddresses.parseLiteral("192.169.0.1")));
+		assertNull(InetAddresses.parseLiteral("localhost"));
+		assertNull(InetAddresses.parseLiteral("999.1.1.1"));
+	}
+}
@@ -0,0 +1,89 @@
+package com.extension.AITranslatorExtension.preflight;
+
+import com.extension.AITranslatorExtension.preflight.PreflightClassifier.Reason;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreflightClassifierTests {
+
+	private static final String TO_ENGLISH = "Translate the following text to English";
+	private static final String TO_VIETNAMESE = "Dịch đoạn văn sau sang tiếng Việt";
+
+	private final PreflightClassifier classifier = new PreflightClassifier(true);
+
+	@Test
+	void answersUntranslatableTokensLocally() {
+		assertEquals(Reason.NO_LETTERS, classifier.classify(TO_ENGLISH, " 1,234.50 % "));
+		assertEquals(Reason.NO_LETTERS, classifier.classify(TO_ENGLISH, "👍🎉!!"));
+		assertEquals(Reason.URL, classifier.classify(TO_ENGLISH, "https://example.com/a?b=c"));
+		assertEquals(Reason.EMAIL, classifier.classify(TO_ENGLISH, "someone@example.org"));
+		assertEquals(Reason.CODE, classifier.classify(TO_ENGLISH, "getUserName()"));
+		assertEquals(Reason.CODE, classifier.classify(TO_ENGLISH, "max_retry_count"));
+	}
+
+	@Test
+	void sendsPlainWordsToTheModel() {
+		assertNull(classifier.classify(TO_ENGLISH, "Xin chào"));
+		assertNull(classifier.classify(TO_ENGLISH, "Bonjour"));
+	}
+
+	@Test
+	void skipsTextAlreadyInTargetLanguage() {
+		assertEquals(Reason.ALREADY_TARGET_LANGUAGE, classifier.classify(TO_ENGLISH,
+				"The weather is nice today and we are going to the park with the children."));
+		assertEquals(Reason.ALREADY_TARGET_LANGUAGE, classifier.classify(TO_VIETNAMESE,
+				"Hôm nay trời đẹp và chúng tôi sẽ đi công viên với các con."));
+		assertNull(classifier.classify(TO_VIETNAMESE,
+				"The weather is nice today and we are going to the park with the children."));
+		assertNull(classifier.classify(TO_ENGLISH,
+				"Le temps est beau aujourd'hui et nous allons au parc avec les enfants."));
+	}
+
+	@Test
+	void sendsNamesAndBrandsToTheModel() {
+		assertNull(classifier.classify(TO_VIETNAMESE, "McDonald"));
+		assertNull(classifier.classify(TO_VIETNAMESE, "iPhone"));
+		assertNull(classifier.classify(TO_VIETNAMESE, "YouTube"));
+		assertNull(classifier.classify(TO_VIETNAMESE, "PowerPoint"));
+		assertEquals(Reason.CODE, classifier.classify(TO_VIETNAMESE, "userName"));
+		assertEquals(Reason.CODE, classifier.classify(TO_VIETNAMESE, "ThreadPoolExecutor"));
+		assertEquals(Reason.CODE, classifier.classify(TO_VIETNAMESE, "request.getText"));
+	}
+
+	@Test
+	void sendsCompoundPromptsToTheModel() {
+		String english = "The weather is nice today and we are going to the park with the children.";
+		assertNull(classifier.classify("Translate to English and explain the idiom", english));
+		assertNull(classifier.classify("Translate to English, then summarize it", english));
+		assertNull(classifier.classify("Dịch sang tiếng Anh và giải thích", "42"));
+		assertEquals(Reason.ALREADY_TARGET_LANGUAGE, classifier.classify("Please translate this into English:", english));
+		assertEquals(Reason.NO_LETTERS, classifier.classify("Hãy dịch câu này sang tiếng Anh.", "42"));
+	}
+
+	@Test
+	void readsOnlyUnambiguousTargetLanguages() {
+		assertEquals("en", PreflightClassifier.targetLanguage("Dịch sang tiếng Anh"));
+		assertEquals("vi", PreflightClassifier.targetLanguage("Translate into Vietnamese"));
+		// "ý" (idea) and "qua" (through) are everyday Vietnamese words, not a target language
+		assertNull(PreflightClassifier.targetLanguage("Dịch lướt qua ý chính"));
+		assertNull(PreflightClassifier.targetLanguage("Dịch qua tiếng Ý"));
+	}
+
+	@Test
+	void leavesNonTranslationPromptsAlone() {
+		assertNull(classifier.classify("Explain this number", "42"));
+		assertEquals(0L, classifier.getMetrics().get("checked"));
+	}
+
+	@Test
+	void identifiesCommonLanguages() {
+		assertEquals("en", LanguageIdentifier.identify("This is a short sentence that should be detected as English."));
+		assertEquals("es", LanguageIdentifier.identify("El perro de mi vecino es muy grande y come mucha carne todos los días."));
+		assertEquals("fr", LanguageIdentifier.identify("Le temps est beau aujourd'hui et nous allons au parc avec les enfants."));
+		assertEquals("de", LanguageIdentifier.identify("Der Hund meines Nachbarn ist sehr groß und frisst jeden Tag viel Fleisch."));
+		assertEquals("ja", LanguageIdentifier.identify("今日はとても良い天気ですね。"));
+		assertEquals("zh", LanguageIdentifier.identify("今天天气很好，我们去公园吧。"));
+		assertNull(LanguageIdentifier.identify("Okay"));
+	}
+}
@@ -0,0 +1,44 @@
+package com.extension.AITranslatorExtension.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptTemplateTests {
+
+	private final PromptTemplateRegistry registry = new PromptTemplateRegistry(2);
+
+	@Test
+	void rendersSameRequestAsFormatString() {
+		String instruction = "Translate to Vietnamese. Keep 100% of the formatting %s";
+		String text = "Hello \"world\"";
+		String expected = String.format(
+				"%s\n\nText: \"%s\"\n\nAnswer as ONE short paragraph, concise and to the point. Avoid filler.",
+				instruction, text);
+
+		PromptTemplate template = registry.templateFor(instruction);
+		assertEquals(expected, template.render(text));
+		assertEquals(expected.substring(instruction.length() + 2), template.renderBody(text));
+	}
+
+	@Test
+	void reusesTemplateWithStableId() {
+		PromptTemplate first = registry.templateFor("Translate to English");
+		PromptTemplate second = registry.templateFor("Translate to English");
+		assertSame(first, second);
+		assertEquals(2, first.getUses());
+		assertEquals(PromptTemplate.idFor(PromptTemplateRegistry.WRAPPER, "Translate to English"), first.getId());
+		assertNotEquals(first.getId(), registry.templateFor("Translate to French").getId());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedTemplate() throws InterruptedException {
+		registry.templateFor("a");
+		Thread.sleep(5);
+		registry.templateFor("b");
+		Thread.sleep(5);
+		registry.templateFor("c");
+		assertEquals(2, registry.size());
+		assertEquals(1L, registry.getMetrics(10).get("evicted"));
+	}
+}
@@ -0,0 +1,177 @@
+package com.extension.AITranslatorExtension.scheduler;
+
+import com.extension.AITranslatorExtension.exception.SchedulerRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityRequestSchedulerTests {
+
+	private final List<String> dispatched = Collections.synchronizedList(new ArrayList<>());
+	private final List<Thread> threads = new ArrayList<>();
+	private final CountDownLatch blockerRunning = new CountDownLatch(1);
+	private final CountDownLatch releaseBlocker = new CountDownLatch(1);
+
+	private static PriorityRequestScheduler newScheduler(int maxDepth, int maxBackgroundDepth, long timeoutMs, long starvationMs) {
+		return new PriorityRequestScheduler(1, maxDepth, maxBackgroundDepth, timeoutMs, starvationMs, 4, 1,
+				"interactive", 200, false);
+	}
+
+	@AfterEach
+	void stopThreads() throws InterruptedException {
+		releaseBlocker.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+	}
+
+	/**
+	 * Take the only permit until {@link #releaseBlocker} is counted down
+	 */
+	private void occupy(PriorityRequestScheduler scheduler) throws InterruptedException {
+		start(() -> scheduler.execute(RequestPriority.INTERACTIVE, "blocker", () -> {
+			blockerRunning.countDown();
+			releaseBlocker.await();
+			return null;
+		}));
+		assertTrue(blockerRunning.await(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Queue a request and wait until the scheduler has it
+	 */
+	private void enqueue(PriorityRequestScheduler scheduler, RequestPriority priority, String client, String label)
+			throws InterruptedException {
+		int queued = queued(scheduler);
+		start(() -> scheduler.execute(priority, client, () -> dispatched.add(label)));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (queued(scheduler) <= queued) {
+			assertTrue(System.nanoTime() < deadline, "request was not queued");
+			Thread.sleep(1);
+		}
+	}
+
+	private void start(ThrowingRunnable runnable) {
+		Thread thread = new Thread(() -> {
+			try {
+				runnable.run();
+			} catch (Exception ignored) {
+				// Rejections are asserted through the metrics
+			}
+		});
+		thread.start();
+		threads.add(thread);
+	}
+
+	private List<String> drain(int expected) throws InterruptedException {
+		releaseBlocker.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+		assertEquals(expected, dispatched.size());
+		return dispatched;
+	}
+
+	private static int queued(PriorityRequestScheduler scheduler) {
+		return (Integer) scheduler.getMetrics().get("queued");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> classMetrics(PriorityRequestScheduler scheduler, String priority) {
+		return (Map<String, Object>) ((Map<String, Object>) scheduler.getMetrics().get("classes")).get(priority);
+	}
+
+	@Test
+	void sharesCapacityByClassWeight() throws Exception {
+		PriorityRequestScheduler scheduler = newScheduler(50, 25, 10_000, 60_000);
+		occupy(scheduler);
+		for (int i = 0; i < 10; i++) {
+			enqueue(scheduler, RequestPriority.BACKGROUND, "10.0.0." + i, "B");
+			enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.1." + i, "I");
+		}
+
+		List<String> order = drain(20);
+		// Weights 4:1 give interactive 8 of the first 10 dispatches
+		assertEquals(8, Collections.frequency(order.subList(0, 10), "I"));
+	}
+
+	@Test
+	void roundRobinsAcrossClientsWithinAClass() throws Exception {
+		PriorityRequestScheduler scheduler = newScheduler(50, 25, 10_000, 60_000);
+		occupy(scheduler);
+		enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.0.1", "a1");
+		enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.0.1", "a2");
+		enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.0.1", "a3");
+		enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.0.2", "b1");
+		enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.0.2", "b2");
+
+		assertEquals(List.of("a1", "b1", "a2", "b2", "a3"), drain(5));
+	}
+
+	@Test
+	void promotesStarvedRequests() throws Exception {
+		PriorityRequestScheduler scheduler = newScheduler(50, 25, 10_000, 50);
+		occupy(scheduler);
+		enqueue(scheduler, RequestPriority.BACKGROUND, "10.0.0.1", "starved");
+		Thread.sleep(100);
+		enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.0.2", "I");
+		enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.0.3", "I");
+
+		assertEquals("starved", drain(3).get(0));
+		assertEquals(1L, classMetrics(scheduler, "background").get("starvationPromotions"));
+	}
+
+	@Test
+	void rejectsAfterQueueTimeout() throws Exception {
+		PriorityRequestScheduler scheduler = newScheduler(50, 25, 50, 60_000);
+		occupy(scheduler);
+
+		long start = System.nanoTime();
+		assertThrows(SchedulerRejectedException.class,
+				() -> scheduler.execute(RequestPriority.INTERACTIVE, "10.0.0.1", () -> "never"));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(0, queued(scheduler));
+		assertEquals(1L, classMetrics(scheduler, "interactive").get("timedOut"));
+	}
+
+	@Test
+	void rejectsWhenQueueIsFullAndKeepsRoomForInteractive() throws Exception {
+		PriorityRequestScheduler scheduler = newScheduler(2, 1, 10_000, 60_000);
+		occupy(scheduler);
+		enqueue(scheduler, RequestPriority.BACKGROUND, "10.0.0.1", "B");
+
+		// Background is capped below the total depth, interactive still gets in
+		assertThrows(SchedulerRejectedException.class,
+				() -> scheduler.execute(RequestPriority.BACKGROUND, "10.0.0.2", () -> "never"));
+		enqueue(scheduler, RequestPriority.INTERACTIVE, "10.0.0.3", "I");
+		assertThrows(SchedulerRejectedException.class,
+				() -> scheduler.execute(RequestPriority.INTERACTIVE, "10.0.0.4", () -> "never"));
+
+		assertEquals(1L, classMetrics(scheduler, "background").get("rejected"));
+		assertEquals(1L, classMetrics(scheduler, "interactive").get("rejected"));
+		assertEquals(2, drain(2).size());
+	}
+
+	@Test
+	void capsQueueBelowRequestThreadsOnPlatformThreads() {
+		PriorityRequestScheduler scheduler = new PriorityRequestScheduler(16, 500, 400, 1000, 1000, 4, 1,
+				"interactive", 200, false);
+		Map<String, Object> metrics = scheduler.getMetrics();
+		// 200 threads less a quarter in reserve less 16 running
+		assertEquals(134, metrics.get("maxQueueDepth"));
+		assertEquals(134, metrics.get("maxBackgroundDepth"));
+	}
+
+	@FunctionalInterface
+	private interface ThrowingRunnable {
+		void run() throws Exception;
+	}
+}
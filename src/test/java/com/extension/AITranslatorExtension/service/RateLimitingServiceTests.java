@@ -0,0 +1,208 @@
+package com.extension.AITranslatorExtension.service;
+
+import com.extension.AITranslatorExtension.accesslog.AccessLog;
+import com.extension.AITranslatorExtension.cluster.LocalStateBackend;
+import com.extension.AITranslatorExtension.network.ClientAddress;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitingServiceTests {
+
+	@TempDir
+	Path directory;
+
+	private static RateLimitingService newService(int prefixRequests, int ipRequests, int maxTrackedAddresses) {
+		RateLimitingService service = new RateLimitingService();
+		ReflectionTestUtils.setField(service, "clusterStateBackend", new LocalStateBackend());
+		ReflectionTestUtils.setField(service, "accessLog", new AccessLog(false, 16, 1.0, 1000, 100, 60_000, 100));
+		ReflectionTestUtils.setField(service, "prefixRequestLimit", prefixRequests);
+		ReflectionTestUtils.setField(service, "prefixPeriodSeconds", 1);
+		ReflectionTestUtils.setField(service, "ipRequestLimit", ipRequests);
+		ReflectionTestUtils.setField(service, "ipPeriodSeconds", 1);
+		ReflectionTestUtils.setField(service, "maxTrackedAddresses", maxTrackedAddresses);
+		return service;
+	}
+
+	private static ClientAddress address(int lastOctet) {
+		return ClientAddress.of(new byte[] {(byte) 198, 51, 100, (byte) lastOctet});
+	}
+
+	private static int consume(RateLimitingService service, ClientAddress client, int requests) {
+		int allowed = 0;
+		for (int i = 0; i < requests; i++) {
+			if (service.tryConsumeForIp(client)) {
+				allowed++;
+			}
+		}
+		return allowed;
+	}
+
+	@Test
+	void tracksAddressesOnceThePrefixIsHot() {
+		RateLimitingService service = newService(100, 4, 256);
+
+		// One address's worth of requests keeps the prefix on a single shared bucket
+		assertEquals(4, consume(service, address(1), 4));
+		assertEquals(0, service.getPrefixMetrics().get("hotPrefixes"));
+
+		assertTrue(service.tryConsumeForIp(address(2)));
+		assertEquals(1, service.getPrefixMetrics().get("hotPrefixes"));
+
+		// From now on each address is held to its own limit, including what it used before
+		assertEquals(3, consume(service, address(2), 5));
+		assertEquals(0, consume(service, address(1), 5));
+	}
+
+	@Test
+	void addressesKeepTheirUseAcrossTheSwitchToHot() throws InterruptedException {
+		RateLimitingService service = newService(100, 4, 256);
+		assertEquals(3, consume(service, address(1), 3));
+		assertEquals(1, consume(service, address(2), 1));
+		assertEquals(0, service.getPrefixMetrics().get("hotPrefixes"));
+
+		// The fifth request of the prefix turns it hot
+		assertTrue(service.tryConsumeForIp(address(2)));
+		assertEquals(1, service.getPrefixMetrics().get("hotPrefixes"));
+		assertEquals(1, consume(service, address(1), 5));
+		assertEquals(2, consume(service, address(2), 5));
+		assertEquals(4, consume(service, address(3), 5));
+
+		// Each address gets its full allowance again after its own period
+		Thread.sleep(1100);
+		assertEquals(4, consume(service, address(1), 5));
+	}
+
+	@Test
+	void addressesPastTheTrackingCapShareOneBucket() {
+		RateLimitingService service = newService(100, 4, 2);
+		consume(service, address(1), 5);
+		assertEquals(1, service.getPrefixMetrics().get("hotPrefixes"));
+
+		// address(1) holds one tracking slot, address(2) the other
+		assertTrue(service.tryConsumeForIp(address(2)));
+		assertEquals(2, service.getPrefixMetrics().get("trackedAddresses"));
+
+		// Rotating through further addresses does not escape the per-address limit
+		int allowed = 0;
+		for (int i = 10; i < 30; i++) {
+			allowed += consume(service, address(i), 1);
+		}
+		assertEquals(4, allowed);
+		assertEquals(2, service.getPrefixMetrics().get("trackedAddresses"));
+	}
+
+	@Test
+	void sweepCoolsQuietPrefixesAndEvictsIdleOnes() throws InterruptedException {
+		RateLimitingService service = newService(100, 4, 256);
+		consume(service, address(1), 5);
+		assertEquals(1, service.getPrefixMetrics().get("hotPrefixes"));
+
+		// Within the refill period nothing is released
+		service.sweepPrefixes(System.nanoTime());
+		assertEquals(1, service.getPrefixMetrics().get("hotPrefixes"));
+
+		Thread.sleep(1100);
+		assertTrue(service.tryConsumeForIp(address(1)));
+		service.sweepPrefixes(System.nanoTime());
+		assertEquals(0, service.getPrefixMetrics().get("hotPrefixes"));
+		assertEquals(0, service.getPrefixMetrics().get("trackedAddresses"));
+		assertEquals(1L, service.getPrefixMetrics().get("cooledPrefixes"));
+
+		// A prefix with no requests for a full period is dropped
+		Thread.sleep(1100);
+		service.sweepPrefixes(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+		assertEquals(0, service.getPrefixMetrics().get("trackedPrefixes"));
+		assertEquals(1L, service.getPrefixMetrics().get("evictedPrefixes"));
+	}
+
+	@Test
+	void endpointBucketsFollowTheAddressTrackingCap() throws IOException, InterruptedException {
+		Path routes = directory.resolve("routes.txt");
+		write(routes, "", 1_000_000L);
+		RateLimitingService service = newRouteService(routes);
+		ReflectionTestUtils.setField(service, "maxTrackedAddresses", 2);
+		ReflectionTestUtils.setField(service, "translatePeriodSeconds", 1);
+		service.reloadRoutePolicies();
+
+		// Rotating addresses inside one prefix
+		for (int i = 1; i <= 30; i++) {
+			if (service.tryConsumeForIp(address(i))) {
+				service.tryConsumeForEndpoint("/api/generate", service.getLimitIdentity(address(i)));
+			}
+		}
+		// Two tracked addresses and the key shared by the rest
+		assertEquals(3, service.getPrefixMetrics().get("endpointBuckets"));
+		assertEquals("overflow:" + address(30).getPrefixKey(), service.getLimitIdentity(address(30)));
+		assertEquals(address(1).getLimitKey(), service.getLimitIdentity(address(1)));
+
+		// Refilled endpoint buckets are swept
+		Thread.sleep(1100);
+		service.sweepPrefixes(System.nanoTime());
+		assertEquals(0, service.getPrefixMetrics().get("endpointBuckets"));
+	}
+
+	private RateLimitingService newRouteService(Path routesFile) {
+		RateLimitingService service = newService(100, 4, 256);
+		ReflectionTestUtils.setField(service, "translateRequestLimit", 20);
+		ReflectionTestUtils.setField(service, "translatePeriodSeconds", 60);
+		ReflectionTestUtils.setField(service, "healthRequestLimit", 60);
+		ReflectionTestUtils.setField(service, "healthPeriodSeconds", 60);
+		ReflectionTestUtils.setField(service, "routesSpec", "");
+		ReflectionTestUtils.setField(service, "routesFile", routesFile.toString());
+		ReflectionTestUtils.setField(service, "defaultRouteRequestLimit", 30);
+		ReflectionTestUtils.setField(service, "defaultRoutePeriodSeconds", 60);
+		service.initRoutePolicies();
+		return service;
+	}
+
+	private static void write(Path file, String content, long modifiedMillis) throws IOException {
+		Files.writeString(file, content);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+	}
+
+	@Test
+	void retriesABrokenRoutesFileUntilItCompiles() throws IOException {
+		Path routes = directory.resolve("routes.txt");
+		write(routes, "/api/users/{id}=5/60", 1_000_000L);
+		RateLimitingService service = newRouteService(routes);
+		assertEquals(5, service.getRoutePolicies().lookup("/api/users/1").getRequests());
+
+		write(routes, "/api/users/{id}=five/60", 2_000_000L);
+		service.reloadRoutePoliciesIfChanged();
+		assertEquals(5, service.getRoutePolicies().lookup("/api/users/1").getRequests());
+
+		// Fixing the content without touching the timestamp again is still picked up
+		write(routes, "/api/users/{id}=7/60", 2_000_000L);
+		service.reloadRoutePoliciesIfChanged();
+		assertEquals(7, service.getRoutePolicies().lookup("/api/users/1").getRequests());
+	}
+
+	@Test
+	void reloadDropsBucketsOfRemovedRoutes() throws IOException {
+		Path routes = directory.resolve("routes.txt");
+		write(routes, "/api/export=2/60", 1_000_000L);
+		RateLimitingService service = newRouteService(routes);
+		assertTrue(service.tryConsumeForEndpoint("/api/export", "198.51.100.1"));
+		assertTrue(service.tryConsumeForEndpoint("/api/export", "198.51.100.1"));
+		assertFalse(service.tryConsumeForEndpoint("/api/export", "198.51.100.1"));
+		assertTrue(service.tryConsumeForEndpoint("/api/generate", "198.51.100.1"));
+
+		write(routes, "", 2_000_000L);
+		service.reloadRoutePolicies();
+		write(routes, "/api/export=2/60", 3_000_000L);
+		service.reloadRoutePolicies();
+
+		// The route came back with a fresh bucket; routes that stayed keep theirs
+		assertEquals(2, service.getRemainingEndpointTokens("/api/export", "198.51.100.1"));
+		assertEquals(19, service.getRemainingEndpointTokens("/api/generate", "198.51.100.1"));
+	}
+}
@@ -0,0 +1,91 @@
+package com.extension.AITranslatorExtension.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutePolicyTableTests {
+
+	private static final RoutePolicy DEFAULT = new RoutePolicy(RoutePolicyTable.UNMATCHED_ROUTE, 30, 60);
+
+	private static RoutePolicyTable compile(String spec) {
+		return RoutePolicyTable.compile(spec, DEFAULT);
+	}
+
+	@Test
+	void resolvesExactRoutes() {
+		RoutePolicyTable table = compile("/api/generate=20/60\n/api/health=60/60");
+		assertEquals("/api/generate", table.lookup("/api/generate").getRoute());
+		assertEquals(20, table.lookup("/api/generate").getRequests());
+		assertSame(DEFAULT, table.lookup("/api/other"));
+		assertSame(DEFAULT, table.lookup("/api/generate/extra"));
+	}
+
+	@Test
+	void matchesVariablesAndWildcards() {
+		RoutePolicyTable table = compile("/api/users/{id}=30/60, /api/users/{id}/posts/*=10/60");
+		assertEquals("/api/users/{id}", table.lookup("/api/users/42").getRoute());
+		assertEquals("/api/users/{id}/posts/*", table.lookup("/api/users/42/posts/7").getRoute());
+		assertSame(DEFAULT, table.lookup("/api/users/42/posts"));
+		assertSame(DEFAULT, table.lookup("/api/users"));
+	}
+
+	@Test
+	void appliesPrecedence() {
+		RoutePolicyTable table = compile("""
+				/api/**=100/60
+				/api/admin/**=10/60
+				/api/users/{id}=30/60
+				/api/users/me=5/60
+				/api/users/{id}/posts=15/60
+				/api/users/me/settings=3/60
+				""");
+		// Literal beats variable
+		assertEquals("/api/users/me", table.lookup("/api/users/me").getRoute());
+		// A literal prefix that leads nowhere falls back to the variable
+		assertEquals("/api/users/{id}/posts", table.lookup("/api/users/me/posts").getRoute());
+		assertEquals("/api/users/me/settings", table.lookup("/api/users/me/settings").getRoute());
+		// Full template match beats a catch-all
+		assertEquals("/api/users/{id}", table.lookup("/api/users/7").getRoute());
+		// Longest catch-all prefix wins, including the prefix itself
+		assertEquals("/api/admin/**", table.lookup("/api/admin/cache/snapshot").getRoute());
+		assertEquals("/api/admin/**", table.lookup("/api/admin").getRoute());
+		assertEquals("/api/**", table.lookup("/api/users/7/comments").getRoute());
+		assertSame(DEFAULT, table.lookup("/internal/cluster"));
+	}
+
+	@Test
+	void laterEntriesOverrideEarlierOnes() {
+		RoutePolicyTable table = compile("/api/generate=20/60\n/api/generate/=5/10");
+		assertEquals(1, table.getPolicies().size());
+		assertEquals(5, table.lookup("/api/generate").getRequests());
+	}
+
+	@Test
+	void normalizesPaths() {
+		assertEquals("/api/generate", RoutePolicyTable.normalize("/api//generate/"));
+		assertEquals("/api/generate", RoutePolicyTable.normalize("api/generate"));
+		assertEquals("/api/generate", RoutePolicyTable.normalize("/api/generate;jsessionid=abc"));
+		assertEquals("/api/generate", RoutePolicyTable.normalize("/api/generate?text=x"));
+		assertEquals("/api/generate", RoutePolicyTable.normalize("/api/./admin/../generate"));
+		assertEquals("/", RoutePolicyTable.normalize("/../.."));
+		assertEquals("/", RoutePolicyTable.normalize(""));
+
+		RoutePolicyTable table = compile("/api/generate=20/60, /*=1/60");
+		assertEquals("/api/generate", table.lookup("/api/admin/../generate/").getRoute());
+		assertSame(DEFAULT, table.lookup("/"));
+	}
+
+	@Test
+	void rejectsMalformedSpecs() {
+		assertThrows(IllegalArgumentException.class, () -> compile("/api/generate"));
+		assertThrows(IllegalArgumentException.class, () -> compile("/api/generate=20"));
+		assertThrows(IllegalArgumentException.class, () -> compile("=20/60"));
+		assertThrows(IllegalArgumentException.class, () -> compile("/api/generate=many/60"));
+		assertThrows(IllegalArgumentException.class, () -> compile("/api/generate=0/60"));
+		assertThrows(IllegalArgumentException.class, () -> compile("/api/generate=20/-1"));
+		assertThrows(IllegalArgumentException.class, () -> compile("/api/**/users=20/60"));
+		// Comments and blank entries are fine
+		assertEquals(1, compile("# limits\n\n/api/generate=20/60,").getPolicies().size());
+	}
+}
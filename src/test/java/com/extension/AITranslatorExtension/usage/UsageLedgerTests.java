@@ -0,0 +1,100 @@
+package com.extension.AITranslatorExtension.usage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsageLedgerTests {
+
+	@TempDir
+	Path directory;
+
+	private UsageLedger newLedger() {
+		return new UsageLedger(true, directory.toString(), 1000, 10, 48, 30);
+	}
+
+	private static long now() {
+		return System.currentTimeMillis() / 60_000L;
+	}
+
+	@Test
+	void ranksConsumersByMetric() {
+		UsageLedger ledger = newLedger();
+		ledger.record("198.51.100.1", 100, 80, 30, 20);
+		ledger.record("198.51.100.2", 10, 8, 3, 2);
+		ledger.record("198.51.100.2", 10, 8, 3, 2);
+		ledger.flush(now() - 1);
+
+		List<Map<String, Object>> byRequests = ledger.topConsumers("hour", UsageMetric.REQUESTS, 10);
+		assertEquals("198.51.100.2", byRequests.get(0).get("consumer"));
+		assertEquals(2L, byRequests.get(0).get("requests"));
+
+		List<Map<String, Object>> byTokens = ledger.topConsumers("hour", UsageMetric.OUTPUT_TOKENS, 1);
+		assertEquals(1, byTokens.size());
+		assertEquals("198.51.100.1", byTokens.get(0).get("consumer"));
+	}
+
+	@Test
+	void restoresRollupsFromLog() {
+		UsageLedger ledger = newLedger();
+		ledger.record("198.51.100.1", 100, 80, 30, 20);
+		ledger.flush(now() - 2);
+		ledger.record("198.51.100.1", 50, 40, 15, 10);
+		ledger.flush(now() - 1);
+
+		UsageLedger restarted = newLedger();
+		restarted.restore();
+		Map<String, Object> usage = restarted.getConsumerUsage("198.51.100.1", "hour");
+		assertEquals(2L, usage.get("requests"));
+		assertEquals(150L, usage.get("inputChars"));
+		assertEquals(30L, usage.get("outputTokens"));
+	}
+
+	@Test
+	void ignoresTornTail() throws IOException {
+		UsageLedger ledger = newLedger();
+		ledger.record("198.51.100.1", 100, 80, 30, 20);
+		ledger.flush(now() - 1);
+		try (var files = Files.list(directory)) {
+			Path log = files.findFirst().orElseThrow();
+			Files.write(log, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+		}
+
+		UsageLedger restarted = newLedger();
+		restarted.restore();
+		assertEquals(1L, restarted.getConsumerUsage("198.51.100.1", "day").get("requests"));
+	}
+
+	@Test
+	void appendsAfterATruncatedFrameStayReadable() throws IOException {
+		UsageLog log = new UsageLog(directory);
+		// Start of a UTC day, so all three rollups share one file
+		long minute = 20_000L * 24 * 60;
+		log.append(new UsageRollup(UsageRollup.MINUTE, minute, Map.of("a", new long[UsageMetric.COUNT])));
+		log.append(new UsageRollup(UsageRollup.MINUTE, minute + 1, Map.of("b", new long[UsageMetric.COUNT])));
+		Path file;
+		try (var files = Files.list(directory)) {
+			file = files.findFirst().orElseThrow();
+		}
+		// A write torn in the middle of the second frame
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+		UsageLog reopened = new UsageLog(directory);
+		assertEquals(1, reopened.read(UsageLog.dateOf(minute)).size());
+		reopened.append(new UsageRollup(UsageRollup.MINUTE, minute + 2, Map.of("c", new long[UsageMetric.COUNT])));
+
+		List<UsageRollup> rollups = reopened.read(UsageLog.dateOf(minute));
+		assertEquals(2, rollups.size());
+		assertEquals(minute + 2, rollups.get(1).getPeriodStart());
+	}
+}
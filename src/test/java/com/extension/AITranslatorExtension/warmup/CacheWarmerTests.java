@@ -0,0 +1,127 @@
+package com.extension.AITranslatorExtension.warmup;
+
+import com.extension.AITranslatorExtension.dto.TranslateRequest;
+import com.extension.AITranslatorExtension.dto.TranslateResponse;
+import com.extension.AITranslatorExtension.service.TranslationCache;
+import com.extension.AITranslatorExtension.service.TranslationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheWarmerTests {
+
+	@TempDir
+	Path directory;
+
+	private CacheWarmer newWarmer(TranslationCache cache, int topN) {
+		return new CacheWarmer(cache, null, true, directory.resolve("warmup.bin").toString(),
+				topN, true, false, 5, 10_000);
+	}
+
+	@Test
+	void restoresHottestEntriesFromSnapshot() throws Exception {
+		TranslationCache cache = new TranslationCache(true, 100, 3600);
+		cache.put("hot", "xin chào", "Translate to Vietnamese", "hello");
+		cache.put("warm", "tạm biệt", "Translate to Vietnamese", "goodbye");
+		cache.put("cold", "cảm ơn", "Translate to Vietnamese", "thanks");
+		for (int i = 0; i < 5; i++) {
+			cache.get("hot");
+		}
+		cache.get("warm");
+
+		assertEquals(2, newWarmer(cache, 2).snapshot());
+
+		TranslationCache restarted = new TranslationCache(true, 100, 3600);
+		CacheWarmer warmer = newWarmer(restarted, 2);
+		assertFalse(warmer.isReady());
+		warmer.warmUp();
+
+		assertTrue(warmer.isReady());
+		assertEquals(2, warmer.getProgress().get("restored"));
+		assertTrue((Long) warmer.getProgress().get("durationMs") < 10_000);
+		assertEquals("xin chào", restarted.get("hot"));
+		assertEquals("tạm biệt", restarted.get("warm"));
+		assertNull(restarted.get("cold"));
+	}
+
+	@Test
+	void writesNoSnapshotUnlessAFileIsConfigured() throws Exception {
+		TranslationCache cache = new TranslationCache(true, 100, 3600);
+		cache.put("hot", "xin chào", "Translate to Vietnamese", "hello");
+		CacheWarmer warmer = new CacheWarmer(cache, null, true, "", 10, true, true, 5, 10_000);
+		assertEquals(0, warmer.snapshot());
+		assertNull(warmer.getProgress().get("snapshotFile"));
+	}
+
+	@Test
+	void readyImmediatelyWhenDisabled() {
+		TranslationCache cache = new TranslationCache(true, 100, 3600);
+		CacheWarmer warmer = new CacheWarmer(cache, null, true, "", 10, true, true, 5, 10_000);
+		assertTrue(warmer.isReady());
+		assertEquals(CacheWarmer.State.DISABLED, warmer.getState());
+	}
+
+	@Test
+	void refetchesInTheBackgroundOnceRestored() throws Exception {
+		String prompt = "Translate to Vietnamese";
+		TranslationCache cache = new TranslationCache(true, 100, 3600);
+		cache.put(TranslationCache.keyFor(prompt, "hello"), "xin chào", prompt, "hello");
+		cache.put(TranslationCache.keyFor(prompt, "goodbye"), "tạm biệt", prompt, "goodbye");
+		for (int i = 0; i < 5; i++) {
+			cache.get(TranslationCache.keyFor(prompt, "hello"));
+		}
+		cache.get(TranslationCache.keyFor(prompt, "goodbye"));
+		// Without persisted results every entry has to be re-translated
+		new CacheWarmer(cache, null, true, directory.resolve("warmup.bin").toString(),
+				10, false, true, 5, 10_000).snapshot();
+
+		TranslationCache restarted = new TranslationCache(true, 100, 3600);
+		CountDownLatch release = new CountDownLatch(1);
+		List<TranslateRequest> requests = new CopyOnWriteArrayList<>();
+		List<String> consumers = new CopyOnWriteArrayList<>();
+		TranslationService translations = new TranslationService(null, null, null, null, null, null, null, null) {
+			@Override
+			public TranslateResponse translate(TranslateRequest request, String clientIp) {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				requests.add(request);
+				consumers.add(clientIp);
+				restarted.put(TranslationCache.keyFor(request.getPrompt(), request.getText()),
+						"[vi] " + request.getText(), request.getPrompt(), request.getText());
+				return TranslateResponse.success("[vi] " + request.getText());
+			}
+		};
+		CacheWarmer warmer = new CacheWarmer(restarted, translations, true,
+				directory.resolve("warmup.bin").toString(), 10, false, true, 100, 10_000);
+
+		Thread warmUp = new Thread(warmer::warmUp);
+		warmUp.start();
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (warmer.getState() != CacheWarmer.State.REFETCHING && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(CacheWarmer.State.REFETCHING, warmer.getState());
+		assertTrue(warmer.isReady());
+
+		release.countDown();
+		warmUp.join(5_000);
+		assertEquals(CacheWarmer.State.READY, warmer.getState());
+		assertEquals(2, warmer.getProgress().get("refetched"));
+		assertEquals(0, warmer.getProgress().get("restored"));
+		assertEquals(List.of(CacheWarmer.WARMUP_CONSUMER, CacheWarmer.WARMUP_CONSUMER), consumers);
+		assertEquals("BACKGROUND", requests.get(0).getPriority());
+		assertEquals("[vi] hello", restarted.get(TranslationCache.keyFor(prompt, "hello")));
+		// The hottest entry keeps its place ahead of the other one
+		assertEquals(TranslationCache.keyFor(prompt, "hello"), restarted.hottest(1).get(0).getKey());
+	}
+}